@@ -12,6 +12,13 @@ CREATE TABLE client (
                         PRIMARY KEY (clientrut)
 );
 
+-- TABLA DE REINICIOS MENSUALES DE VISITAS (un registro por mes ya reiniciado)
+CREATE TABLE visit_reset (
+                        period           VARCHAR(255) NOT NULL,
+                        reset_at         TIMESTAMP(6),
+                        PRIMARY KEY (period)
+);
+
 -- DATOS DE EJEMPLO PARA CLIENTES
 INSERT INTO client (clientrut,
                     client_birthday,
@@ -43,6 +50,11 @@ CREATE TABLE booking (
                          total_amount             INTEGER,
                          total_price              VARCHAR(255),
                          total_with_iva           VARCHAR(255),
+                         version                  BIGINT DEFAULT 0,
+                         base_price_amount        INTEGER,
+                         iva_percent              INTEGER,
+                         participant_prices       BYTEA,
+                         participant_prices_with_iva BYTEA,
                          PRIMARY KEY (id)
 );
 
@@ -77,3 +89,106 @@ INSERT INTO booking (
 
       (8, '19', '25000', '2025-06-12', 'cancelada', '14:20:00', '15:00:00',
        'catalinaloopza@gmail.com', 'Lenovo HP', '12345678-9', 'no,', 20, 1, 29750, '25000,', '29750');
+
+-- TABLA DE INTEGRANTES DE CADA RESERVA
+CREATE TABLE booking_participant (
+                         id                       BIGINT GENERATED BY DEFAULT AS IDENTITY,
+                         booking_id               BIGINT NOT NULL REFERENCES booking (id),
+                         participant_order        INTEGER,
+                         client_rut               VARCHAR(255),
+                         client_name              VARCHAR(255),
+                         client_email             VARCHAR(255),
+                         owner                    BOOLEAN NOT NULL,
+                         PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_participant_rut_owner ON booking_participant (client_rut, owner);
+CREATE INDEX idx_participant_booking ON booking_participant (booking_id);
+
+-- MIGRACIÓN DE LAS LISTAS SEPARADAS POR COMAS A booking_participant
+INSERT INTO booking_participant (booking_id, participant_order, client_rut, client_name, client_email, owner)
+SELECT b.id, r.ord - 1, trim(r.rut), trim(n.name), trim(e.email), r.ord = 1
+FROM booking b
+CROSS JOIN LATERAL unnest(string_to_array(b.clientsrut, ',')) WITH ORDINALITY AS r(rut, ord)
+LEFT JOIN LATERAL unnest(string_to_array(b.clients_names, ',')) WITH ORDINALITY AS n(name, ord) ON n.ord = r.ord
+LEFT JOIN LATERAL unnest(string_to_array(b.clients_emails, ',')) WITH ORDINALITY AS e(email, ord) ON e.ord = r.ord
+WHERE trim(r.rut) <> '';
+
+-- MIGRACIÓN DE LOS MONTOS EN TEXTO A COLUMNAS NUMÉRICAS
+-- (los montos por integrante se guardan empaquetados: 4 bytes big-endian por integrante)
+UPDATE booking b SET
+    base_price_amount = CASE WHEN trim(b.base_price) ~ '^[0-9]+$' THEN trim(b.base_price)::int END,
+    iva_percent = CASE WHEN trim(b.iva) ~ '^[0-9]+$' THEN trim(b.iva)::int ELSE 19 END,
+    participant_prices = (
+        SELECT string_agg(int4send(trim(v)::int), ''::bytea ORDER BY ord)
+        FROM unnest(string_to_array(b.total_price, ',')) WITH ORDINALITY AS t(v, ord)
+        WHERE trim(v) ~ '^-?[0-9]+$'),
+    participant_prices_with_iva = (
+        SELECT string_agg(int4send(trim(v)::int), ''::bytea ORDER BY ord)
+        FROM unnest(string_to_array(b.total_with_iva, ',')) WITH ORDINALITY AS t(v, ord)
+        WHERE trim(v) ~ '^-?[0-9]+$')
+WHERE b.base_price_amount IS NULL AND b.base_price IS NOT NULL;
+
+-- TABLA DE INGRESOS ACUMULADOS DE RESERVAS CONFIRMADAS (año-mes, vueltas y tramo de integrantes)
+CREATE TABLE revenue_rollup (
+                         id                       BIGINT GENERATED BY DEFAULT AS IDENTITY,
+                         rollup_year              INTEGER,
+                         rollup_month             INTEGER,
+                         laps_or_max_time_allowed INTEGER,
+                         people_bucket            INTEGER,
+                         revenue                  BIGINT,
+                         participants             BIGINT,
+                         bookings                 BIGINT,
+                         PRIMARY KEY (id),
+                         CONSTRAINT uk_revenue_rollup_cell UNIQUE (rollup_year, rollup_month, laps_or_max_time_allowed, people_bucket)
+);
+
+INSERT INTO revenue_rollup (rollup_year, rollup_month, laps_or_max_time_allowed, people_bucket, revenue, participants, bookings)
+SELECT CAST(EXTRACT(YEAR FROM b.booking_date) AS int), CAST(EXTRACT(MONTH FROM b.booking_date) AS int),
+       b.laps_or_max_time_allowed,
+       CASE WHEN b.num_of_people BETWEEN 1 AND 2 THEN 2
+            WHEN b.num_of_people BETWEEN 3 AND 5 THEN 5
+            WHEN b.num_of_people BETWEEN 6 AND 10 THEN 10
+            WHEN b.num_of_people BETWEEN 11 AND 15 THEN 15
+            ELSE 0 END,
+       COALESCE(SUM(CAST(b.base_price_amount AS bigint) * b.num_of_people), 0),
+       COALESCE(SUM(b.num_of_people), 0),
+       COUNT(*)
+FROM booking b
+WHERE b.booking_status = 'confirmada' AND b.booking_date IS NOT NULL
+  AND b.laps_or_max_time_allowed IS NOT NULL AND b.num_of_people IS NOT NULL
+GROUP BY 1, 2, 3, 4;
+
+-- ÍNDICES PARA CONSULTAS POR RANGO DE FECHAS
+CREATE INDEX idx_booking_status_date_id ON booking (booking_status, booking_date, id);
+CREATE INDEX idx_booking_date_time ON booking (booking_date, booking_time);
+
+-- CORREOS DE COMPROBANTE PENDIENTES
+CREATE TABLE voucher_email_outbox (
+                         id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+                         booking_id      BIGINT       NOT NULL,
+                         recipient       VARCHAR(255) NOT NULL,
+                         status          VARCHAR(255) NOT NULL,
+                         attempts        INTEGER      NOT NULL,
+                         next_attempt_at TIMESTAMP    NOT NULL,
+                         claim_token     VARCHAR(255),
+                         last_error      VARCHAR(1000),
+                         created_at      TIMESTAMP    NOT NULL,
+                         sent_at         TIMESTAMP,
+                         PRIMARY KEY (id)
+);
+CREATE INDEX idx_voucher_email_status_next ON voucher_email_outbox (status, next_attempt_at);
+
+-- CAMBIOS PENDIENTES DE REPLICAR EN ms-rack
+CREATE TABLE rack_outbox (
+                         id               BIGINT GENERATED BY DEFAULT AS IDENTITY,
+                         booking_id       BIGINT       NOT NULL,
+                         operation        VARCHAR(255) NOT NULL,
+                         booking_date     DATE,
+                         booking_time     TIME(6),
+                         booking_time_end TIME(6),
+                         booking_status   VARCHAR(255),
+                         client_name      VARCHAR(255),
+                         created_at       TIMESTAMP    NOT NULL,
+                         PRIMARY KEY (id)
+);
@@ -15,6 +15,10 @@ CREATE TABLE rack (
 
 ALTER TABLE rack OWNER TO postgres;
 
+-- ÍNDICES PARA CONSULTAS POR RANGO DE FECHAS
+CREATE INDEX idx_rack_status_date ON rack (booking_status, booking_date);
+CREATE INDEX idx_rack_date_time ON rack (booking_date, booking_time);
+
 -- DATOS DE EJEMPLO
 INSERT INTO rack (id,
                   booking_date,
@@ -13,6 +13,21 @@ import ArrowBackIosNewIcon from '@mui/icons-material/ArrowBackIosNew';
 import ArrowForwardIosIcon from '@mui/icons-material/ArrowForwardIos';
 import bookingService from '../services/services.management';
 
+// Quita la reserva de la grilla y, si sigue confirmada en esta semana, la pone en su celda
+const applyRackChange = (week, change) => {
+  const cells = week.cells.map((day) => day.map((cell) => cell.filter((slot) => slot.id !== change.id)));
+  if (change.operation === 'upsert' && change.bookingStatus === 'confirmada' && change.bookingTime) {
+    const dayIndex = week.days.indexOf(change.bookingDate);
+    const hourIndex = week.hours.indexOf(parseInt(change.bookingTime.split(':')[0]));
+    if (dayIndex >= 0 && hourIndex >= 0) {
+      const { id, bookingTime, bookingTimeEnd, clientName } = change;
+      cells[dayIndex][hourIndex] = [...cells[dayIndex][hourIndex], { id, bookingTime, bookingTimeEnd, clientName }]
+        .sort((a, b) => a.bookingTime.localeCompare(b.bookingTime) || a.id - b.id);
+    }
+  }
+  return { ...week, cells };
+};
+
 const RackWeekly = () => {
   // Estados para las fechas y selecciones
   const [currentDate, setCurrentDate] = useState(new Date());
@@ -20,8 +35,8 @@ const RackWeekly = () => {
   const [selectedMonth, setSelectedMonth] = useState(getMonth(currentDate));
   const [selectedYear, setSelectedYear] = useState(getYear(currentDate));
 
-  // Estados para los datos
-  const [bookings, setBookings] = useState([]);
+  // Estados para los datos (grilla de la semana: cells[día][hora])
+  const [rackWeek, setRackWeek] = useState(null);
   const [error, setError] = useState(null);
 
   // Constantes para la interfaz
@@ -33,10 +48,9 @@ const RackWeekly = () => {
   // Obtener reservas del servicio
   const fetchBookings = async () => {
     try {
-      // Llama a la función pasando mes y año seleccionados
-      const response = await bookingService.getBookingsForRack(selectedMonth + 1, selectedYear);
-      console.log("Response from bookingService:", response);
-      setBookings(response.data);
+      // Llama a la función pasando la semana ISO mostrada
+      const response = await bookingService.getRackWeek(format(weekStart, "RRRR-'W'II"));
+      setRackWeek(response.data);
       setError(null);
     } catch (err) {
       console.error("Error al obtener las reservas:", err);
@@ -44,11 +58,28 @@ const RackWeekly = () => {
     }
   };
 
-  // Cargar reservas cuando cambia la semana, mes o año
+  // Cargar reservas cuando cambia la semana
   useEffect(() => {
     fetchBookings();
      
-  }, [weekStart, selectedMonth, selectedYear]);
+  }, [weekStart]);
+
+  // Recibir los cambios de la semana sin volver a consultarla
+  useEffect(() => {
+    const events = bookingService.openRackEvents(format(weekStart, "RRRR-'W'II"));
+    let connected = false;
+    events.onopen = () => {
+      // Al reconectar se pudieron perder cambios, así que se vuelve a cargar la semana
+      if (connected) fetchBookings();
+      connected = true;
+    };
+    events.addEventListener('rack', (message) => {
+      const change = JSON.parse(message.data);
+      setRackWeek((week) => (week ? applyRackChange(week, change) : week));
+    });
+    return () => events.close();
+     
+  }, [weekStart]);
 
   // Actualizar la semana cuando cambia el mes o año
   useEffect(() => {
@@ -80,20 +111,13 @@ const RackWeekly = () => {
     setSelectedYear(getYear(newWeekStart));
   };
 
-  // Filtrar reservas por día y hora
+  // Reservas de la celda (día, hora) de la grilla
   const getBookingsForTimeSlot = (day, timeBlock) => {
-    const dateStr = format(day, 'yyyy-MM-dd');
-    const hour = parseInt(timeBlock.split(':')[0]);
-    
-    return bookings.filter(booking => {
-      if (booking.bookingDate !== dateStr) return false;
-      
-      const bookingTimeStr = booking.bookingTime;
-      if (!bookingTimeStr) return false;
-      
-      const bookingHour = parseInt(bookingTimeStr.split(':')[0]);
-      return bookingHour === hour;
-    });
+    if (!rackWeek) return [];
+    const dayIndex = rackWeek.days.indexOf(format(day, 'yyyy-MM-dd'));
+    const hourIndex = rackWeek.hours.indexOf(parseInt(timeBlock.split(':')[0]));
+    if (dayIndex < 0 || hourIndex < 0) return [];
+    return rackWeek.cells[dayIndex][hourIndex];
   };
 
   // Extraer el nombre del cliente
@@ -35,6 +35,7 @@ const Reports = () => {
     const [error, setError] = useState(null);
     const [startMonth, setStartMonth] = useState(1);
     const [endMonth, setEndMonth] = useState(12);
+    const [year, setYear] = useState(new Date().getFullYear());
     const [showTables, setShowTables] = useState(false);
     
     // Estados para mejorar UX (Nielsen: Visibilidad del estado del sistema)
@@ -43,6 +44,8 @@ const Reports = () => {
     
     const lapsOrMaxTime = [10, 15 ,20]
     const people = [2, 5, 10, 15];
+    // Años disponibles: los cinco anteriores y el actual
+    const years = Array.from({ length: 6 }, (_, i) => new Date().getFullYear() - 5 + i);
 
     // Función mejorada para validar y cargar reportes (Nielsen: Prevención de errores)
     const fetchAllReports = async () => {
@@ -59,8 +62,8 @@ const Reports = () => {
         try {
             // Cargar reportes en paralelo para mejor rendimiento
             const promises = [
-                ...lapsOrMaxTime.map(laps => fetchConfirmedBookings(laps, startMonth, endMonth)),
-                ...people.map(p => fetchConfirmedBookingsByPeople(p, startMonth, endMonth))
+                ...lapsOrMaxTime.map(laps => fetchConfirmedBookings(laps, startMonth, endMonth, year)),
+                ...people.map(p => fetchConfirmedBookingsByPeople(p, startMonth, endMonth, year))
             ];
             
             await Promise.all(promises);
@@ -80,10 +83,10 @@ const Reports = () => {
     };
 
     // Función mejorada para obtener las reservas por mes y número de vueltas (Nielsen: Visibilidad del estado del sistema)
-    const fetchConfirmedBookings = async (lapsOrTimeMax, startMonth, endMonth) => {
+    const fetchConfirmedBookings = async (lapsOrTimeMax, startMonth, endMonth, year) => {
         try {
-            const response = await bookingService.getBookingsForReport1(lapsOrTimeMax, startMonth, endMonth);
-            const responseTotalIncomes1 = await bookingService.getIncomesForLapsOfMonth(startMonth, endMonth);
+            const response = await bookingService.getBookingsForReport1(lapsOrTimeMax, startMonth, endMonth, year);
+            const responseTotalIncomes1 = await bookingService.getIncomesForLapsOfMonth(startMonth, endMonth, year);
             setreportData1(prev => ({...prev, [lapsOrTimeMax]: response.data})); 
             setTotalIncomes1(responseTotalIncomes1.data);
         } catch (error) {
@@ -93,10 +96,10 @@ const Reports = () => {
     };
 
     // Función mejorada para obtener las reservas por cantidad de integrantes (Nielsen: Visibilidad del estado del sistema)
-    const fetchConfirmedBookingsByPeople = async (people, startMonth, endMonth) => {
+    const fetchConfirmedBookingsByPeople = async (people, startMonth, endMonth, year) => {
         try{
-            const response2 = await bookingService.getBookingsForReport2(people, startMonth, endMonth);
-            const responseTotalIncomes2 = await bookingService.getIncomesForNumOfPeopleOfMonth(startMonth, endMonth);
+            const response2 = await bookingService.getBookingsForReport2(people, startMonth, endMonth, year);
+            const responseTotalIncomes2 = await bookingService.getIncomesForNumOfPeopleOfMonth(startMonth, endMonth, year);
             setreportData2(prev => ({...prev, [people]: response2.data})); 
             setTotalIncomes2(responseTotalIncomes2.data);
         } catch (error) {
@@ -276,6 +279,34 @@ const Reports = () => {
                                 ))}
                             </Select>
                         </FormControl>
+
+                        <FormControl sx={{ minWidth: 140 }}>
+                            <InputLabel sx={{ color: '#5B21B6', '&.Mui-focused': { color: '#5B21B6' } }}>
+                                <CalendarIcon sx={{ mr: 1, fontSize: 18 }} />
+                                Año
+                            </InputLabel>
+                            <Select
+                                value={year}
+                                label="Año"
+                                onChange={(e) => {
+                                    setYear(e.target.value);
+                                    if (error) clearError();
+                                }}
+                                sx={{
+                                    backgroundColor: 'white',
+                                    '&:hover .MuiOutlinedInput-notchedOutline': {
+                                        borderColor: '#5B21B6'
+                                    },
+                                    '&.Mui-focused .MuiOutlinedInput-notchedOutline': {
+                                        borderColor: '#5B21B6'
+                                    }
+                                }}
+                            >
+                                {years.map((y) => (
+                                    <MenuItem key={y} value={y}>{y}</MenuItem>
+                                ))}
+                            </Select>
+                        </FormControl>
                         
                         <Button 
                             variant="contained" 
@@ -306,7 +337,7 @@ const Reports = () => {
                     {/* Resumen de selección (Nielsen: Visibilidad del estado del sistema) */}
                     <Box sx={{ display: 'flex', justifyContent: 'center', gap: 2, flexWrap: 'wrap' }}>
                         <Chip 
-                            label={`Período: ${monthNames[startMonth-1]} - ${monthNames[endMonth-1]}`}
+                            label={`Período: ${monthNames[startMonth-1]} - ${monthNames[endMonth-1]} ${year}`}
                             sx={{ 
                                 bgcolor: '#E0F2FE', 
                                 color: '#0369A1', 
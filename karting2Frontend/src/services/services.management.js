@@ -49,21 +49,31 @@ function getBookingsForRack(month, year){
     return axios.get(`${RACK_API_URL}/getBookingsForRack/${month}/${year}`);
 }
 
+// isoWeek: 2025-W15. El navegador revalida con el ETag y recibe 304 si la semana no cambió
+function getRackWeek(isoWeek){
+    return axios.get(`${RACK_API_URL}/week/${isoWeek}`);
+}
+
+// Cambios del rack de la semana a medida que ocurren (server-sent events, evento "rack")
+function openRackEvents(isoWeek){
+    return new EventSource(`${RACK_API_URL}/events?week=${isoWeek}`);
+}
+
 // ------------------ Report ------------------
-function getBookingsForReport1(lapsOrTimeMax, startMonth, endMonth){
-    return axios.get(`${REPORT_API_URL}/getBookingsForReport1/${lapsOrTimeMax}/${startMonth}/${endMonth}`);
+function getBookingsForReport1(lapsOrTimeMax, startMonth, endMonth, year){
+    return axios.get(`${REPORT_API_URL}/getBookingsForReport1/${lapsOrTimeMax}/${startMonth}/${endMonth}`, { params: { year } });
 }
 
-function getIncomesForLapsOfMonth(startMonth, endMonth){
-    return axios.get(`${REPORT_API_URL}/getTotalForReport1/${startMonth}/${endMonth}`);
+function getIncomesForLapsOfMonth(startMonth, endMonth, year){
+    return axios.get(`${REPORT_API_URL}/getTotalForReport1/${startMonth}/${endMonth}`, { params: { year } });
 }
 
-function getBookingsForReport2(people, startMonth, endMonth){
-    return axios.get(`${REPORT_API_URL}/getBookingsForReport2/${people}/${startMonth}/${endMonth}`);
+function getBookingsForReport2(people, startMonth, endMonth, year){
+    return axios.get(`${REPORT_API_URL}/getBookingsForReport2/${people}/${startMonth}/${endMonth}`, { params: { year } });
 }
 
-function getIncomesForNumOfPeopleOfMonth(startMonth, endMonth){
-    return axios.get(`${REPORT_API_URL}/getTotalForReport2/${startMonth}/${endMonth}`);
+function getIncomesForNumOfPeopleOfMonth(startMonth, endMonth, year){
+    return axios.get(`${REPORT_API_URL}/getTotalForReport2/${startMonth}/${endMonth}`, { params: { year } });
 }
 
 // ------------------ Client ------------------
@@ -88,6 +98,8 @@ export default {
     saveClient,
     sendVoucherByEmail,
     getBookingsForRack,
+    getRackWeek,
+    openRackEvents,
     getBookingsForReport1,
     getIncomesForLapsOfMonth,
     getBookingsForReport2,
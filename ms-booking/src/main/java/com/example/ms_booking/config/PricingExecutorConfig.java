@@ -0,0 +1,34 @@
+package com.example.ms_booking.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class PricingExecutorConfig {
+
+    /**
+     * Pool acotado para las consultas a ms-rates y a los servicios de descuentos.
+     * Si la cola se llena, la consulta se rechaza y la reserva responde 504: ejecutarla en el hilo de
+     * la petición no respetaría el plazo de la tarificación.
+     */
+    @Bean(name = "pricingExecutor", destroyMethod = "shutdown")
+    public ExecutorService pricingExecutor(@Value("${pricing.executor.pool-size:16}") int poolSize,
+                                           @Value("${pricing.executor.queue-capacity:256}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "pricing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
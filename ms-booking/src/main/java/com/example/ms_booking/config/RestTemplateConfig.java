@@ -1,16 +1,26 @@
 package com.example.ms_booking.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * RestTemplate con timeouts: una llamada que supera el plazo de la tarificación se abandona, pero
+     * sin timeout de lectura seguiría ocupando un hilo del pool hasta que el servicio responda.
+     */
     @Bean
     @LoadBalanced
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(@Value("${rest.connect-timeout-ms:1000}") int connectTimeoutMs,
+                                     @Value("${rest.read-timeout-ms:${pricing.deadline-ms:5000}}") int readTimeoutMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        return new RestTemplate(requestFactory);
     }
 }
@@ -0,0 +1,33 @@
+package com.example.ms_booking.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class VoucherMailExecutorConfig {
+
+    /**
+     * Pool acotado que arma y envía los correos de comprobante (un lote por reserva).
+     * Si la cola se llena, el lote se envía en el hilo que revisa la bandeja de salida.
+     */
+    @Bean(name = "voucherMailExecutor", destroyMethod = "shutdown")
+    public ExecutorService voucherMailExecutor(@Value("${voucher.mail.pool-size:4}") int poolSize,
+                                               @Value("${voucher.mail.queue-capacity:64}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "voucher-mail-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
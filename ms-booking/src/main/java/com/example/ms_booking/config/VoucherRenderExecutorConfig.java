@@ -0,0 +1,35 @@
+package com.example.ms_booking.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class VoucherRenderExecutorConfig {
+
+    /**
+     * Pool para generar comprobantes en paralelo (planilla del día). Generar un PDF o un Excel
+     * usa sólo CPU, así que por defecto hay un hilo por núcleo (pool-size 0).
+     * Si la cola se llena, el comprobante se genera en el hilo que escribe la respuesta.
+     */
+    @Bean(name = "voucherRenderExecutor", destroyMethod = "shutdown")
+    public ExecutorService voucherRenderExecutor(@Value("${voucher.render.pool-size:0}") int poolSize,
+                                                 @Value("${voucher.render.queue-capacity:64}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "voucher-render-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
@@ -1,12 +1,17 @@
 package com.example.ms_booking.controller;
 
+import com.example.ms_booking.dto.BookingPageDTO;
+import com.example.ms_booking.dto.BookingSummaryDTO;
+import com.example.ms_booking.dto.RevenueCellDTO;
 import com.example.ms_booking.entity.EntityBooking;
 import com.example.ms_booking.service.ServiceBooking;
+import com.example.ms_booking.service.ServiceBookingPage;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.Year;
 import java.util.List;
 
 @RestController
@@ -15,9 +20,11 @@ import java.util.List;
 public class ControlBooking {
 
     private final ServiceBooking serviceBooking;
+    private final ServiceBookingPage serviceBookingPage;
 
-    public ControlBooking(ServiceBooking serviceBooking) {
+    public ControlBooking(ServiceBooking serviceBooking, ServiceBookingPage serviceBookingPage) {
         this.serviceBooking = serviceBooking;
+        this.serviceBookingPage = serviceBookingPage;
     }
 
     @PostMapping("/save")
@@ -72,40 +79,89 @@ public class ControlBooking {
         return serviceBooking.findByClientsRUTContains(rut);
     }
 
+    //----------------------------------------------------------------
+    // Listados paginados: se pide la siguiente página con ?after=<nextCursor de la anterior>
+
+    @GetMapping("/getBookings/page")
+    public ResponseEntity<BookingPageDTO> getBookingsPage(@RequestParam(required = false) String after,
+                                                         @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(serviceBookingPage.getBookings(after, size));
+    }
+
+    @GetMapping("/findByBookingDate/{bookingDate}/page")
+    public ResponseEntity<BookingPageDTO> findByBookingDatePage(@PathVariable LocalDate bookingDate,
+                                                                @RequestParam(required = false) String after,
+                                                                @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(serviceBookingPage.findByBookingDate(bookingDate, after, size));
+    }
+
+    @GetMapping("/findByClientsRUTContains/{rut}/page")
+    public ResponseEntity<BookingPageDTO> findByClientsRUTContainsPage(@PathVariable String rut,
+                                                                       @RequestParam(required = false) String after,
+                                                                       @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(serviceBookingPage.findByClientsRUTContains(rut, after, size));
+    }
+
+    @GetMapping("/getBookingsByUser/{rut}/page")
+    public ResponseEntity<BookingPageDTO> getBookingsByUserRutPage(@PathVariable String rut,
+                                                                   @RequestParam(required = false) String after,
+                                                                   @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(serviceBookingPage.getBookingsByUserRut(rut, after, size));
+    }
+
 
     //----------------------------------------------------------------
     // --- Método para obtener una lista de reservas de un cliente ---
     //----------------------------------------------------------------
 
     @GetMapping("/findByStatusDayTimeAllowed/{status}/{month}/{maxTimeAllowed}")
-    public ResponseEntity<List<EntityBooking>> findByStatusAndDayAndLapsOrMaxTime(@PathVariable String status, @PathVariable String month, @PathVariable Integer maxTimeAllowed) {
-        List<EntityBooking> bookings = serviceBooking.findByStatusAndDayAndLapsOrMaxTime(status, month, maxTimeAllowed);
+    public ResponseEntity<List<BookingSummaryDTO>> findByStatusAndDayAndLapsOrMaxTime(@PathVariable String status, @PathVariable String month, @PathVariable Integer maxTimeAllowed, @RequestParam(required = false) Integer year) {
+        List<BookingSummaryDTO> bookings = serviceBooking.findByStatusAndDayAndLapsOrMaxTime(status, yearOrCurrent(year), month, maxTimeAllowed);
         return ResponseEntity.ok(bookings);
     }
 
     @GetMapping("/findByStatusDayPeople1/{status}/{month}/{numOfPeople}")
-    public ResponseEntity<List<EntityBooking>> findByStatusAndDayAndNumOfPeople1or2(@PathVariable String status, @PathVariable String month, @PathVariable Integer numOfPeople) {
-        List<EntityBooking> bookings = serviceBooking.findByStatusAndDayAndNumOfPeople1or2(status, month, numOfPeople);
+    public ResponseEntity<List<BookingSummaryDTO>> findByStatusAndDayAndNumOfPeople1or2(@PathVariable String status, @PathVariable String month, @PathVariable Integer numOfPeople, @RequestParam(required = false) Integer year) {
+        List<BookingSummaryDTO> bookings = serviceBooking.findByStatusAndDayAndNumOfPeople1or2(status, yearOrCurrent(year), month, numOfPeople);
         return ResponseEntity.ok(bookings);
     }
 
     @GetMapping("/findByStatusDayPeople2/{status}/{month}/{numOfPeople}")
-    public ResponseEntity<List<EntityBooking>> findByStatusAndDayAndNumOfPeople3to5(@PathVariable String status, @PathVariable String month, @PathVariable Integer numOfPeople) {
-        List<EntityBooking> bookings = serviceBooking.findByStatusAndDayAndNumOfPeople3to5(status, month, numOfPeople);
+    public ResponseEntity<List<BookingSummaryDTO>> findByStatusAndDayAndNumOfPeople3to5(@PathVariable String status, @PathVariable String month, @PathVariable Integer numOfPeople, @RequestParam(required = false) Integer year) {
+        List<BookingSummaryDTO> bookings = serviceBooking.findByStatusAndDayAndNumOfPeople3to5(status, yearOrCurrent(year), month, numOfPeople);
         return ResponseEntity.ok(bookings);
     }
 
     @GetMapping("/findByStatusDayPeople3/{status}/{month}/{numOfPeople}")
-    public ResponseEntity<List<EntityBooking>> findByStatusAndDayAndNumOfPeople6to10(@PathVariable String status, @PathVariable String month, @PathVariable Integer numOfPeople) {
-        List<EntityBooking> bookings = serviceBooking.findByStatusAndDayAndNumOfPeople6to10(status, month, numOfPeople);
+    public ResponseEntity<List<BookingSummaryDTO>> findByStatusAndDayAndNumOfPeople6to10(@PathVariable String status, @PathVariable String month, @PathVariable Integer numOfPeople, @RequestParam(required = false) Integer year) {
+        List<BookingSummaryDTO> bookings = serviceBooking.findByStatusAndDayAndNumOfPeople6to10(status, yearOrCurrent(year), month, numOfPeople);
         return ResponseEntity.ok(bookings);
     }
     @GetMapping("/findByStatusDayPeople4/{status}/{month}/{numOfPeople}")
-    public ResponseEntity<List<EntityBooking>> findByStatusAndDayAndNumOfPeople11to15(@PathVariable String status, @PathVariable String month, @PathVariable Integer numOfPeople) {
-        List<EntityBooking> bookings = serviceBooking.findByStatusAndDayAndNumOfPeople11to15(status, month, numOfPeople);
+    public ResponseEntity<List<BookingSummaryDTO>> findByStatusAndDayAndNumOfPeople11to15(@PathVariable String status, @PathVariable String month, @PathVariable Integer numOfPeople, @RequestParam(required = false) Integer year) {
+        List<BookingSummaryDTO> bookings = serviceBooking.findByStatusAndDayAndNumOfPeople11to15(status, yearOrCurrent(year), month, numOfPeople);
         return ResponseEntity.ok(bookings);
     }
 
+    /**
+     * Método para obtener los ingresos agrupados por mes, vueltas o tiempo máximo y tramo de integrantes
+     * @param status estado de la reserva
+     * @param year año
+     * @param startMonth mes de inicio
+     * @param endMonth mes de fin
+     * @return lista de ingresos agrupados
+     */
+    @GetMapping("/revenue/{status}/{year}/{startMonth}/{endMonth}")
+    public ResponseEntity<List<RevenueCellDTO>> getRevenue(@PathVariable String status, @PathVariable Integer year, @PathVariable Integer startMonth, @PathVariable Integer endMonth) {
+        List<RevenueCellDTO> revenue = serviceBooking.getRevenue(status, year, startMonth, endMonth);
+        return ResponseEntity.ok(revenue);
+    }
+
+    // Sin año explícito se usa el año en curso
+    private Integer yearOrCurrent(Integer year) {
+        return year != null ? year : Year.now().getValue();
+    }
+
     //---------------------------------------------------------------
     //    Método para x
     //---------------------------------------------------------------
@@ -133,4 +189,15 @@ public class ControlBooking {
         return ResponseEntity.ok(times);
     }
 
+    @GetMapping("/getFreeSlots/{date}/{minutes}")
+    public ResponseEntity<List<LocalTime>> getFreeSlots(@PathVariable LocalDate date, @PathVariable Integer minutes){
+        List<LocalTime> times = serviceBooking.getFreeSlots(date, minutes);
+        return ResponseEntity.ok(times);
+    }
+
+    @GetMapping("/isSlotFree/{date}/{time}/{minutes}")
+    public ResponseEntity<Boolean> isSlotFree(@PathVariable LocalDate date, @PathVariable LocalTime time, @PathVariable Integer minutes){
+        return ResponseEntity.ok(serviceBooking.isSlotFree(date, time, minutes));
+    }
+
 }
@@ -0,0 +1,39 @@
+package com.example.ms_booking.controller;
+
+import com.example.ms_booking.service.ServiceBookingExport;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/booking/export")
+@CrossOrigin(origins = "*")
+public class ControlExport {
+
+    private final ServiceBookingExport serviceBookingExport;
+
+    public ControlExport(ServiceBookingExport serviceBookingExport) {
+        this.serviceBookingExport = serviceBookingExport;
+    }
+
+    /**
+     * Método para exportar las reservas de un rango de fechas [from, to) como JSON por líneas
+     * @param status estado de la reserva
+     * @param from fecha de inicio (incluida)
+     * @param to fecha de fin (excluida)
+     * @return reservas, una por línea
+     */
+    @GetMapping("/{status}/{from}/{to}")
+    public ResponseEntity<StreamingResponseBody> exportBookings(@PathVariable String status,
+                                                                @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        StreamingResponseBody body = out -> serviceBookingExport.writeRows(status, from, to, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+}
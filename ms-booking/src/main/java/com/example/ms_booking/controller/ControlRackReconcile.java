@@ -0,0 +1,48 @@
+package com.example.ms_booking.controller;
+
+import com.example.ms_booking.dto.RackReconcileStatusDTO;
+import com.example.ms_booking.service.ServiceRackReconciler;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/booking/rack")
+@CrossOrigin(origins = "*")
+public class ControlRackReconcile {
+
+    private final ServiceRackReconciler serviceRackReconciler;
+
+    public ControlRackReconcile(ServiceRackReconciler serviceRackReconciler) {
+        this.serviceRackReconciler = serviceRackReconciler;
+    }
+
+    /**
+     * Método para iniciar la reconciliación de las reservas confirmadas con el rack
+     * @param from fecha inicial (incluida, opcional)
+     * @param to fecha final (excluida, opcional)
+     * @return avance inicial, o 409 si ya hay una reconciliación en curso
+     */
+    @PostMapping("/reconcile")
+    public ResponseEntity<RackReconcileStatusDTO> reconcile(@RequestParam(required = false) LocalDate from,
+                                                            @RequestParam(required = false) LocalDate to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!serviceRackReconciler.start(from, to)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(serviceRackReconciler.status());
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(serviceRackReconciler.status());
+    }
+
+    /**
+     * Método para consultar el avance de la reconciliación actual o de la última
+     * @return avance
+     */
+    @GetMapping("/reconcile")
+    public ResponseEntity<RackReconcileStatusDTO> reconcileStatus() {
+        return ResponseEntity.ok(serviceRackReconciler.status());
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.ms_booking.controller;
+
+import com.example.ms_booking.service.ServiceRevenueRollup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/booking/revenue")
+@CrossOrigin(origins = "*")
+public class ControlRevenue {
+
+    private final ServiceRevenueRollup serviceRevenueRollup;
+
+    public ControlRevenue(ServiceRevenueRollup serviceRevenueRollup) {
+        this.serviceRevenueRollup = serviceRevenueRollup;
+    }
+
+    /**
+     * Método para recalcular desde cero los ingresos acumulados de las reservas confirmadas
+     * @return cantidad de celdas generadas
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Integer> rebuildRevenue() {
+        return ResponseEntity.ok(serviceRevenueRollup.rebuild());
+    }
+}
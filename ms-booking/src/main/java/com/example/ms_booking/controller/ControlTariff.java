@@ -0,0 +1,29 @@
+package com.example.ms_booking.controller;
+
+import com.example.ms_booking.dto.TariffDTO;
+import com.example.ms_booking.service.ServiceTariff;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/booking/tariff")
+@CrossOrigin(origins = "*")
+public class ControlTariff {
+
+    private final ServiceTariff serviceTariff;
+
+    public ControlTariff(ServiceTariff serviceTariff) {
+        this.serviceTariff = serviceTariff;
+    }
+
+    /**
+     * Método para forzar la recarga de la tarifa en caché desde ms-rates
+     * @return tarifa vigente después de la recarga
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<Integer, TariffDTO>> refreshTariff() {
+        return ResponseEntity.ok(serviceTariff.refresh());
+    }
+}
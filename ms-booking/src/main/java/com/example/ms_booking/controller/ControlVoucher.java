@@ -1,8 +1,17 @@
 package com.example.ms_booking.controller;
 
+import com.example.ms_booking.exception.BookingValidationException;
 import com.example.ms_booking.service.ServiceVoucher;
+import com.example.ms_booking.service.ServiceVoucherExport;
+import com.example.ms_booking.service.ServiceVoucherMailer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/voucher")
@@ -10,9 +19,14 @@ import org.springframework.web.bind.annotation.*;
 public class ControlVoucher {
 
     private final ServiceVoucher serviceVoucher;
+    private final ServiceVoucherMailer serviceVoucherMailer;
+    private final ServiceVoucherExport serviceVoucherExport;
 
-    public ControlVoucher(ServiceVoucher serviceVoucher) {
+    public ControlVoucher(ServiceVoucher serviceVoucher, ServiceVoucherMailer serviceVoucherMailer,
+                          ServiceVoucherExport serviceVoucherExport) {
         this.serviceVoucher = serviceVoucher;
+        this.serviceVoucherMailer = serviceVoucherMailer;
+        this.serviceVoucherExport = serviceVoucherExport;
     }
 
     /**
@@ -25,11 +39,43 @@ public class ControlVoucher {
     }
 
     /**
-     * Método para enviar el comprobante por correo electrónico
+     * Método para exportar el comprobante a PDF
+     * @param bookingId ID de la reserva
+     */
+    @PostMapping("/pdf/{bookingId}")
+    public ResponseEntity<byte[]> exportVoucherToPdf(@PathVariable Long bookingId) {
+        return serviceVoucher.exportVoucherToPdf(bookingId);
+    }
+
+    /**
+     * Método para enviar el comprobante por correo electrónico. El envío queda en la bandeja
+     * de salida y se hace en segundo plano, por eso se responde 202 de inmediato.
      * @param bookingId ID de la reserva
      */
     @PostMapping("/send/{bookingId}")
-    public void sendVoucherByEmail(@PathVariable Long bookingId) {
-        serviceVoucher.sendVoucherByEmail(bookingId);
+    public ResponseEntity<Void> sendVoucherByEmail(@PathVariable Long bookingId) {
+        serviceVoucherMailer.enqueue(bookingId);
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Método para descargar en un ZIP los comprobantes de todas las reservas de un día
+     * @param date fecha de las reservas
+     * @param format pdf, xlsx o both
+     * @return ZIP con un comprobante por reserva, escrito a medida que se generan
+     */
+    @GetMapping("/day/{date}")
+    public ResponseEntity<StreamingResponseBody> exportDaySheet(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                                @RequestParam(defaultValue = "pdf") String format) {
+        boolean pdf = "pdf".equals(format) || "both".equals(format);
+        boolean xlsx = "xlsx".equals(format) || "both".equals(format);
+        if (!pdf && !xlsx) {
+            throw new BookingValidationException("Formato no soportado: " + format + " (pdf, xlsx o both)");
+        }
+        StreamingResponseBody body = out -> serviceVoucherExport.writeDaySheet(date, pdf, xlsx, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"Comprobantes_" + date + ".zip\"")
+                .body(body);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.example.ms_booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Fila de exportación de ingresos: una reserva, sin integrantes ni montos por integrante.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingExportRowDTO {
+    private Long id;
+    private LocalDate bookingDate;
+    private LocalTime bookingTime;
+    private String bookingStatus;
+    private Integer lapsOrMaxTimeAllowed;
+    private Integer numOfPeople;
+    private Integer basePrice;
+    private Integer totalAmount;
+}
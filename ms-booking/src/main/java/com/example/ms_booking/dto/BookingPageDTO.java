@@ -0,0 +1,22 @@
+package com.example.ms_booking.dto;
+
+import com.example.ms_booking.entity.EntityBooking;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Página de reservas ordenadas por (fecha, id). nextCursor se envía como parámetro "after"
+ * para obtener la página siguiente y es null en la última página.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingPageDTO {
+    private List<EntityBooking> items;
+    private String nextCursor; // fecha_id de la última reserva de la página (2025-04-15_12)
+}
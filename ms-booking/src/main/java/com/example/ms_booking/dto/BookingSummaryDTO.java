@@ -0,0 +1,26 @@
+package com.example.ms_booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Datos de una reserva que usan los otros microservicios (sin integrantes ni montos por integrante).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingSummaryDTO {
+    private Long id;
+    private LocalDate bookingDate;
+    private LocalTime bookingTimeEnd;
+    private String bookingStatus;
+    private Integer lapsOrMaxTimeAllowed;
+    private Integer numOfPeople;
+    private Integer basePrice;
+}
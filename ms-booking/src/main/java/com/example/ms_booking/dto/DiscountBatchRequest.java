@@ -0,0 +1,26 @@
+package com.example.ms_booking.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Cuerpo de las llamadas /discount/batch de ms-discounts1, ms-discounts2 y ms-special-rates.
+ * Cada servicio lee sólo la lista que le corresponde.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DiscountBatchRequest {
+    private Integer basePrice;
+    private String bookingDayMonth;
+    private List<Integer> numOfPeople;
+    private List<Integer> visitsPerMonth;
+    private List<String> clientBirthdays;
+}
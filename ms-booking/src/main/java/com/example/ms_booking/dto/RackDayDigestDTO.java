@@ -0,0 +1,22 @@
+package com.example.ms_booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Resumen de las reservas de un día que deberían estar en el rack: cantidad y hash de sus filas
+ * ordenadas por ID. Se compara con el mismo resumen calculado por ms-rack.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RackDayDigestDTO {
+    private LocalDate bookingDate;
+    private Long bookings;
+    private String hash;
+}
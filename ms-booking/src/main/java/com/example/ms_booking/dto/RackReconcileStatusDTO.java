@@ -0,0 +1,30 @@
+package com.example.ms_booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Avance de la reconciliación entre las reservas confirmadas y el rack.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RackReconcileStatusDTO {
+    private boolean running;
+    private LocalDate from;
+    private LocalDate to;
+    private LocalDate checkedUntil; // Los días anteriores a esta fecha ya se revisaron
+    private long daysChecked;
+    private long daysRepaired;
+    private long upserts;
+    private long deletes;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String lastError;
+}
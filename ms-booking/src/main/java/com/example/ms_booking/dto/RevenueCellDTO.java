@@ -0,0 +1,22 @@
+package com.example.ms_booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Ingresos agrupados por mes, vueltas o tiempo máximo y tramo de integrantes.
+ * El tramo se identifica por su límite superior (2, 5, 10 o 15); 0 si está fuera de los tramos.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueCellDTO {
+    private Integer month;
+    private Integer lapsOrMaxTimeAllowed;
+    private Integer peopleBucket;
+    private Long revenue;
+    private Long bookings;
+}
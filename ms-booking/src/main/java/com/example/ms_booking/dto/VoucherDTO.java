@@ -0,0 +1,31 @@
+package com.example.ms_booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Datos del comprobante de una reserva, ya formateados. Se arma una sola vez por reserva y lo usan
+ * tanto el comprobante Excel como el PDF.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoucherDTO {
+    private Long bookingId;
+    private String bookingDate;      // dd-MM-yyyy
+    private String bookingTime;      // HH:mm
+    private String bookingTimeEnd;   // HH:mm
+    private String lapsOrMaxTimeAllowed;
+    private String numOfPeople;
+    private String ownerName;        // Cliente que realizó la reserva
+    private String basePrice;
+    private String iva;
+    private Integer totalAmount;
+    private List<VoucherLineDTO> lines;
+    private List<String> emails;
+}
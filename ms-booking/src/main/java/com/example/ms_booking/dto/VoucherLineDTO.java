@@ -0,0 +1,20 @@
+package com.example.ms_booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Fila del comprobante: montos de un integrante de la reserva.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoucherLineDTO {
+    private String clientName;
+    private String discount;
+    private String price;         // Monto con descuento
+    private String priceWithIva;  // Monto total con IVA
+}
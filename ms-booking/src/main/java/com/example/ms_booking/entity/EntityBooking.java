@@ -1,20 +1,30 @@
 package com.example.ms_booking.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "booking")
+@Table(name = "booking", indexes = {
+        @Index(name = "idx_booking_status_date_id", columnList = "booking_status, booking_date, id"),
+        @Index(name = "idx_booking_date_time", columnList = "booking_date, booking_time")
+})
 public class EntityBooking {
     @Id
     @GeneratedValue(strategy = jakarta.persistence.GenerationType.IDENTITY)
@@ -31,20 +41,91 @@ public class EntityBooking {
 
     private Integer lapsOrMaxTimeAllowed;
     private Integer numOfPeople;
-    @Column(length = 1000)
-    private String clientsRUT; // Lista con los rut de los clientes
-    @Column(length = 1000)
-    private String clientsNames; // Lista con los nombres de los clientes
-    @Column(length = 1000)
-    private String clientsEmails; // Lista con los correos de los clientes
 
-    private String basePrice; // Tarifa base
+    @JsonIgnore
+    @OneToMany(mappedBy = "booking", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("participantOrder")
+    @BatchSize(size = 50)
+    private List<EntityBookingParticipant> participants = new ArrayList<>(); // Integrantes (el primero es quien reserva)
+
+    @Column(name = "base_price_amount")
+    private Integer basePrice; // Tarifa base
     @Column(length = 1000)
     private String discounts; // Descuentos aplicados (cumpleaños, integrantes, visitas)
-    @Column(length = 1000)
-    private String totalPrice; // Tarifa con descuentos aplicados
+    @Convert(converter = PackedIntArrayConverter.class)
+    @Column(name = "participant_prices")
+    private int[] totalPrice; // Tarifa con descuentos aplicados, por integrante
 
-    private String iva = "19"; // Porcentaje impuesto
-    private String totalWithIva; // Total con impuesto
+    @Column(name = "iva_percent")
+    private Integer iva = 19; // Porcentaje impuesto
+    @Convert(converter = PackedIntArrayConverter.class)
+    @Column(name = "participant_prices_with_iva")
+    private int[] totalWithIva; // Total con impuesto, por integrante
     private Integer totalAmount; // Suma de los valores por cliente (Precio final)
+
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version; // Control de concurrencia optimista
+
+    //-----------------------------------------------------------
+    //    Listas separadas por comas de los integrantes
+    //    (formato usado por el frontend y los comprobantes)
+    //-----------------------------------------------------------
+
+    public String getClientsRUT() {
+        return joinParticipants(EntityBookingParticipant::getClientRUT);
+    }
+
+    public void setClientsRUT(String clientsRUT) {
+        splitIntoParticipants(clientsRUT, EntityBookingParticipant::setClientRUT);
+    }
+
+    public String getClientsNames() {
+        return joinParticipants(EntityBookingParticipant::getClientName);
+    }
+
+    public void setClientsNames(String clientsNames) {
+        splitIntoParticipants(clientsNames, EntityBookingParticipant::setClientName);
+    }
+
+    public String getClientsEmails() {
+        return joinParticipants(EntityBookingParticipant::getClientEmail);
+    }
+
+    public void setClientsEmails(String clientsEmails) {
+        splitIntoParticipants(clientsEmails, EntityBookingParticipant::setClientEmail);
+    }
+
+    private String joinParticipants(Function<EntityBookingParticipant, String> getter) {
+        if (participants.isEmpty()) {
+            return null;
+        }
+        StringJoiner joiner = new StringJoiner(",");
+        for (EntityBookingParticipant participant : participants) {
+            String value = getter.apply(participant);
+            joiner.add(value != null ? value : "");
+        }
+        return joiner.toString();
+    }
+
+    private void splitIntoParticipants(String values, BiConsumer<EntityBookingParticipant, String> setter) {
+        if (values == null) {
+            return;
+        }
+        String[] parts = values.split(",");
+        for (int i = 0; i < parts.length; i++) {
+            if (participants.size() <= i) {
+                EntityBookingParticipant participant = new EntityBookingParticipant();
+                participant.setBooking(this);
+                participant.setParticipantOrder(i);
+                participant.setOwner(i == 0);
+                participants.add(participant);
+            }
+            setter.accept(participants.get(i), parts[i].trim());
+        }
+        // Una lista más corta deja fuera a los integrantes que sobran
+        while (participants.size() > parts.length) {
+            participants.remove(participants.size() - 1);
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package com.example.ms_booking.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "booking_participant", indexes = {
+        @Index(name = "idx_participant_rut_owner", columnList = "client_rut, owner"),
+        @Index(name = "idx_participant_booking", columnList = "booking_id")
+})
+public class EntityBookingParticipant {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "booking_id", nullable = false)
+    private EntityBooking booking;
+
+    @Column(name = "participant_order")
+    private Integer participantOrder; // Posición del integrante en la reserva (0 = quien reserva)
+    @Column(name = "client_rut")
+    private String clientRUT; // 12345678-9
+    @Column(name = "client_name")
+    private String clientName;
+    @Column(name = "client_email")
+    private String clientEmail;
+    private boolean owner; // true para el cliente que realizó la reserva
+}
@@ -0,0 +1,35 @@
+package com.example.ms_booking.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "rack_outbox")
+public class EntityRackOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // Orden en que se enviarán los cambios
+
+    @Column(name = "booking_id", nullable = false)
+    private Long bookingId;
+    @Column(nullable = false)
+    private String operation; // upsert o delete
+    private LocalDate bookingDate;
+    private LocalTime bookingTime;
+    private LocalTime bookingTimeEnd;
+    private String bookingStatus;
+    private String clientName;
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,34 @@
+package com.example.ms_booking.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "revenue_rollup", uniqueConstraints = @UniqueConstraint(
+        name = "uk_revenue_rollup_cell",
+        columnNames = {"rollup_year", "rollup_month", "laps_or_max_time_allowed", "people_bucket"}))
+public class EntityRevenueRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rollup_year")
+    private Integer year;
+    @Column(name = "rollup_month")
+    private Integer month;
+    @Column(name = "laps_or_max_time_allowed")
+    private Integer lapsOrMaxTimeAllowed;
+    @Column(name = "people_bucket")
+    private Integer peopleBucket; // Límite superior del tramo de integrantes (2, 5, 10 o 15; 0 fuera de tramo)
+
+    private Long revenue; // Suma de tarifa base por integrante de las reservas confirmadas
+    private Long participants; // Suma de integrantes
+    private Long bookings; // Cantidad de reservas confirmadas
+}
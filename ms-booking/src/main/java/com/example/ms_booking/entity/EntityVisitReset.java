@@ -0,0 +1,23 @@
+package com.example.ms_booking.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "visit_reset")
+public class EntityVisitReset {
+    @Id
+    private String period; // YYYY-MM mes cuyo reinicio ya se aplicó
+    private LocalDateTime resetAt;
+}
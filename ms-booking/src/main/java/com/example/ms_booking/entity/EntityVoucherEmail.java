@@ -0,0 +1,41 @@
+package com.example.ms_booking.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "voucher_email_outbox", indexes = {
+        @Index(name = "idx_voucher_email_status_next", columnList = "status, next_attempt_at")
+})
+public class EntityVoucherEmail {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "booking_id", nullable = false)
+    private Long bookingId;
+    @Column(nullable = false)
+    private String recipient; // Correo del integrante
+    @Column(nullable = false)
+    private String status; // pendiente, enviando, enviado, fallido
+    private int attempts; // Envíos fallidos hasta ahora
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt; // Próximo intento; mientras se envía, fin del plazo del worker
+    @Column(name = "claim_token")
+    private String claimToken; // Identifica el lote que tomó el correo
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
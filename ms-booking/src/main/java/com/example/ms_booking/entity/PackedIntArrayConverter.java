@@ -0,0 +1,34 @@
+package com.example.ms_booking.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Guarda un arreglo de enteros como bytes (4 bytes por valor, big-endian) en una columna bytea.
+ * Se usa para los montos por integrante de una reserva, en el mismo orden que los integrantes.
+ */
+@Converter
+public class PackedIntArrayConverter implements AttributeConverter<int[], byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(int[] values) {
+        if (values == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Integer.BYTES);
+        buffer.asIntBuffer().put(values);
+        return buffer.array();
+    }
+
+    @Override
+    public int[] convertToEntityAttribute(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        int[] values = new int[bytes.length / Integer.BYTES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(values);
+        return values;
+    }
+}
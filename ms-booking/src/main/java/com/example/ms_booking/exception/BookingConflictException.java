@@ -0,0 +1,7 @@
+package com.example.ms_booking.exception;
+
+public class BookingConflictException extends RuntimeException {
+    public BookingConflictException(String message) {
+        super(message);
+    }
+}
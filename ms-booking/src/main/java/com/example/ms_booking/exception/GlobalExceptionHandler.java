@@ -1,5 +1,7 @@
 package com.example.ms_booking.exception;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -14,4 +16,16 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleBookingValidationException(BookingValidationException ex) {
         return ResponseEntity.badRequest().body(ex.getMessage());
     }
+    @ExceptionHandler(BookingConflictException.class)
+    public ResponseEntity<String> handleBookingConflictException(BookingConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("La reserva fue modificada por otra operación, intente nuevamente");
+    }
+    @ExceptionHandler(PricingTimeoutException.class)
+    public ResponseEntity<String> handlePricingTimeoutException(PricingTimeoutException ex) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(ex.getMessage());
+    }
 }
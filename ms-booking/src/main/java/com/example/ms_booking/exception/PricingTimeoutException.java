@@ -0,0 +1,7 @@
+package com.example.ms_booking.exception;
+
+public class PricingTimeoutException extends RuntimeException {
+    public PricingTimeoutException(String message) {
+        super(message);
+    }
+}
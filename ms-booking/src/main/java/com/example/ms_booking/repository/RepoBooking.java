@@ -1,31 +1,149 @@
 package com.example.ms_booking.repository;
 
+import com.example.ms_booking.dto.BookingExportRowDTO;
+import com.example.ms_booking.dto.BookingSummaryDTO;
+import com.example.ms_booking.dto.RevenueCellDTO;
 import com.example.ms_booking.entity.EntityBooking;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface RepoBooking extends JpaRepository<EntityBooking, Long> {
     List<EntityBooking> findByBookingDate(LocalDate bookingDate);
     List<EntityBooking> findByBookingStatusContains(String status);
-    List<EntityBooking> findByClientsRUTContains(String rut);
 
-    @Query("SELECT b FROM EntityBooking b WHERE b.bookingStatus = ?1 AND MONTH(b.bookingDate) = ?2 AND (b.lapsOrMaxTimeAllowed = ?3)")
-    List<EntityBooking> findByStatusAndDayAndLapsOrMaxTime(String status, String month, Integer maxTimeAllowed);
+    // Reserva con sus integrantes en una sola consulta (comprobantes)
+    @Query("SELECT b FROM EntityBooking b LEFT JOIN FETCH b.participants WHERE b.id = ?1")
+    Optional<EntityBooking> findWithParticipantsById(Long id);
+
+    // Reservas no canceladas de un día con sus integrantes, en el orden de la jornada (planilla de comprobantes)
+    @Query("SELECT b FROM EntityBooking b LEFT JOIN FETCH b.participants WHERE b.bookingDate = ?1 AND b.bookingStatus <> 'cancelada' ORDER BY b.bookingTime, b.id")
+    List<EntityBooking> findWithParticipantsByBookingDate(LocalDate bookingDate);
+
+    @Query("SELECT DISTINCT b FROM EntityBooking b JOIN b.participants p WHERE p.clientRUT = ?1")
+    List<EntityBooking> findByParticipantRut(String rut);
+
+    @Query("SELECT b FROM EntityBooking b JOIN b.participants p WHERE p.clientRUT = ?1 AND p.owner = true")
+    List<EntityBooking> findByOwnerRut(String rut);
+
+    // Paginación por cursor sobre (booking_date, id): cada página parte después de la última fila de la anterior
+    @Query("SELECT b FROM EntityBooking b WHERE b.bookingStatus = ?1 AND (b.bookingDate > ?2 OR (b.bookingDate = ?2 AND b.id > ?3)) ORDER BY b.bookingDate, b.id")
+    List<EntityBooking> findPageByStatus(String status, LocalDate afterDate, Long afterId, Pageable page);
+
+    @Query("SELECT b FROM EntityBooking b WHERE b.bookingDate = ?1 AND b.id > ?2 ORDER BY b.id")
+    List<EntityBooking> findPageByBookingDate(LocalDate bookingDate, Long afterId, Pageable page);
+
+    @Query("""
+            SELECT b FROM EntityBooking b
+            WHERE EXISTS (SELECT 1 FROM EntityBookingParticipant p WHERE p.booking = b AND p.clientRUT = ?1)
+              AND (b.bookingDate > ?2 OR (b.bookingDate = ?2 AND b.id > ?3))
+            ORDER BY b.bookingDate, b.id
+            """)
+    List<EntityBooking> findPageByParticipantRut(String rut, LocalDate afterDate, Long afterId, Pageable page);
+
+    @Query("""
+            SELECT b FROM EntityBooking b
+            WHERE EXISTS (SELECT 1 FROM EntityBookingParticipant p WHERE p.booking = b AND p.clientRUT = ?1 AND p.owner = true)
+              AND (b.bookingDate > ?2 OR (b.bookingDate = ?2 AND b.id > ?3))
+            ORDER BY b.bookingDate, b.id
+            """)
+    List<EntityBooking> findPageByOwnerRut(String rut, LocalDate afterDate, Long afterId, Pageable page);
+
+    // Proyecciones: sólo las columnas que usan los otros microservicios, en el rango semiabierto [from, to)
+    // para que la consulta use el índice (booking_status, booking_date, id)
+    @Query("""
+            SELECT new com.example.ms_booking.dto.BookingSummaryDTO(
+                b.id, b.bookingDate, b.bookingTimeEnd, b.bookingStatus, b.lapsOrMaxTimeAllowed, b.numOfPeople, b.basePrice)
+            FROM EntityBooking b
+            WHERE b.bookingStatus = ?1 AND b.bookingDate >= ?2 AND b.bookingDate < ?3 AND b.lapsOrMaxTimeAllowed = ?4
+            """)
+    List<BookingSummaryDTO> findSummariesByStatusAndDateRangeAndLapsOrMaxTime(String status, LocalDate from, LocalDate to, Integer maxTimeAllowed);
+
+    @Query("""
+            SELECT new com.example.ms_booking.dto.BookingSummaryDTO(
+                b.id, b.bookingDate, b.bookingTimeEnd, b.bookingStatus, b.lapsOrMaxTimeAllowed, b.numOfPeople, b.basePrice)
+            FROM EntityBooking b
+            WHERE b.bookingStatus = ?1 AND b.bookingDate >= ?2 AND b.bookingDate < ?3 AND b.numOfPeople BETWEEN ?4 AND ?5
+            """)
+    List<BookingSummaryDTO> findSummariesByStatusAndDateRangeAndNumOfPeople(String status, LocalDate from, LocalDate to, Integer minPeople, Integer maxPeople);
+
+    @Query("""
+            SELECT new com.example.ms_booking.dto.RevenueCellDTO(
+                MONTH(b.bookingDate), b.lapsOrMaxTimeAllowed,
+                CASE WHEN b.numOfPeople BETWEEN 1 AND 2 THEN 2
+                     WHEN b.numOfPeople BETWEEN 3 AND 5 THEN 5
+                     WHEN b.numOfPeople BETWEEN 6 AND 10 THEN 10
+                     WHEN b.numOfPeople BETWEEN 11 AND 15 THEN 15
+                     ELSE 0 END,
+                SUM(b.basePrice * b.numOfPeople), COUNT(b))
+            FROM EntityBooking b
+            WHERE b.bookingStatus = ?1 AND b.bookingDate >= ?2 AND b.bookingDate < ?3
+            GROUP BY MONTH(b.bookingDate), b.lapsOrMaxTimeAllowed,
+                CASE WHEN b.numOfPeople BETWEEN 1 AND 2 THEN 2
+                     WHEN b.numOfPeople BETWEEN 3 AND 5 THEN 5
+                     WHEN b.numOfPeople BETWEEN 6 AND 10 THEN 10
+                     WHEN b.numOfPeople BETWEEN 11 AND 15 THEN 15
+                     ELSE 0 END
+            """)
+    List<RevenueCellDTO> sumRevenueByMonthLapsAndPeople(String status, LocalDate from, LocalDate to);
+
+    // Se recorre con un cursor (fetch size) dentro de una transacción de sólo lectura
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            SELECT new com.example.ms_booking.dto.BookingExportRowDTO(
+                b.id, b.bookingDate, b.bookingTime, b.bookingStatus, b.lapsOrMaxTimeAllowed,
+                b.numOfPeople, b.basePrice, b.totalAmount)
+            FROM EntityBooking b
+            WHERE b.bookingStatus = ?1 AND b.bookingDate >= ?2 AND b.bookingDate < ?3
+            ORDER BY b.bookingDate, b.bookingTime, b.id
+            """)
+    Stream<BookingExportRowDTO> streamForExport(String status, LocalDate from, LocalDate to);
+
+    // Reconciliación con ms-rack: hash por día de las reservas confirmadas ordenadas por ID (día, cantidad, md5).
+    // Cada fila es la que se replica en el rack (el nombre es el del primer integrante) y debe calcularse
+    // igual que RepoRack.digestByDateRange en ms-rack
+    @Query(value = """
+            SELECT CAST(b.booking_date AS VARCHAR), COUNT(*),
+                   md5(string_agg(concat_ws('|', b.id, COALESCE(CAST(b.booking_time AS VARCHAR), ''),
+                                            COALESCE(CAST(b.booking_time_end AS VARCHAR), ''), b.booking_status,
+                                            COALESCE((SELECT p.client_name FROM booking_participant p
+                                                      WHERE p.booking_id = b.id
+                                                      ORDER BY p.participant_order LIMIT 1), '')),
+                                  ',' ORDER BY b.id))
+            FROM booking b
+            WHERE b.booking_status = 'confirmada' AND b.booking_date >= ?1 AND b.booking_date < ?2
+            GROUP BY b.booking_date
+            ORDER BY b.booking_date
+            """, nativeQuery = true)
+    List<Object[]> rackDigestByDateRange(LocalDate from, LocalDate to);
 
-    @Query("SELECT b FROM EntityBooking b WHERE b.bookingStatus = ?1 AND MONTH(b.bookingDate) = ?2 AND (b.numOfPeople = 1 OR b.numOfPeople = 2)")
-    List<EntityBooking> findByStatusAndDayAndNumOfPeople1or2(String status, String month, Integer numOfPeople);
+    // FOR SHARE: una cancelación o confirmación concurrente espera a la reconciliación, o ésta ve su resultado.
+    // Sin JOIN FETCH porque Postgres no bloquea el lado opcional de un LEFT JOIN; los integrantes se cargan por lotes
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT b FROM EntityBooking b WHERE b.bookingStatus = 'confirmada' AND b.bookingDate IN ?1")
+    List<EntityBooking> findConfirmedByBookingDatesForShare(Collection<LocalDate> dates);
 
-    @Query("SELECT b FROM EntityBooking b WHERE b.bookingStatus = ?1 AND MONTH(b.bookingDate) = ?2 AND (3 <= b.numOfPeople AND b.numOfPeople <= 5)")
-    List<EntityBooking> findByStatusAndDayAndNumOfPeople3to5(String status, String month, Integer numOfPeople);
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT b FROM EntityBooking b WHERE b.id IN ?1")
+    List<EntityBooking> findAllByIdForShare(Collection<Long> ids);
 
-    @Query("SELECT b FROM EntityBooking b WHERE b.bookingStatus = ?1 AND MONTH(b.bookingDate) = ?2 AND (6 <= b.numOfPeople AND b.numOfPeople <= 10)")
-    List<EntityBooking> findByStatusAndDayAndNumOfPeople6to10(String status, String month, Integer numOfPeople);
+    @Query("SELECT MIN(b.bookingDate) FROM EntityBooking b")
+    LocalDate findFirstBookingDate();
 
-    @Query("SELECT b FROM EntityBooking b WHERE b.bookingStatus = ?1 AND MONTH(b.bookingDate) = ?2 AND (11 <= b.numOfPeople AND b.numOfPeople <= 15)")
-    List<EntityBooking> findByStatusAndDayAndNumOfPeople11to15(String status, String month, Integer numOfPeople);
+    @Query("SELECT MAX(b.bookingDate) FROM EntityBooking b")
+    LocalDate findLastBookingDate();
 }
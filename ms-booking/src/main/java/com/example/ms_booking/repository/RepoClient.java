@@ -2,9 +2,25 @@ package com.example.ms_booking.repository;
 
 import com.example.ms_booking.entity.EntityClient;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface RepoClient extends JpaRepository<EntityClient, Long> {
     EntityClient findByClientRUT(String clientRUT);
+    List<EntityClient> findByClientRUTIn(Collection<String> clientsRUT);
+
+    // Incrementa las visitas en la misma sentencia y devuelve [rut, visitas después del incremento]
+    @Transactional
+    @Query(value = "UPDATE client SET visits_per_month = COALESCE(visits_per_month, 0) + 1 WHERE clientrut IN (?1) RETURNING clientrut, visits_per_month", nativeQuery = true)
+    List<Object[]> incrementVisitsPerMonth(Collection<String> clientsRUT);
+
+    @Modifying
+    @Query(value = "UPDATE client SET visits_per_month = 0 WHERE visits_per_month <> 0", nativeQuery = true)
+    int resetVisitsPerMonth();
 }
@@ -0,0 +1,20 @@
+package com.example.ms_booking.repository;
+
+import com.example.ms_booking.entity.EntityRackOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RepoRackOutbox extends JpaRepository<EntityRackOutbox, Long> {
+
+    List<EntityRackOutbox> findAllByOrderByIdAsc(Pageable page);
+
+    // Un solo relay a la vez entre todas las instancias (se libera al terminar la transacción),
+    // así los cambios llegan a ms-rack en orden
+    @Query(value = "SELECT pg_try_advisory_xact_lock(?1)", nativeQuery = true)
+    boolean tryRelayLock(long key);
+}
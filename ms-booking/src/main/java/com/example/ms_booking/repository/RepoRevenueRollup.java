@@ -0,0 +1,63 @@
+package com.example.ms_booking.repository;
+
+import com.example.ms_booking.dto.RevenueCellDTO;
+import com.example.ms_booking.entity.EntityRevenueRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RepoRevenueRollup extends JpaRepository<EntityRevenueRollup, Long> {
+
+    @Query("""
+            SELECT new com.example.ms_booking.dto.RevenueCellDTO(r.month, r.lapsOrMaxTimeAllowed, r.peopleBucket, SUM(r.revenue), SUM(r.bookings))
+            FROM EntityRevenueRollup r
+            WHERE r.year = ?1 AND r.month BETWEEN ?2 AND ?3
+            GROUP BY r.month, r.lapsOrMaxTimeAllowed, r.peopleBucket
+            """)
+    List<RevenueCellDTO> findRevenue(Integer year, Integer startMonth, Integer endMonth);
+
+    // Suma (o resta, con valores negativos) una reserva a su celda, creándola si no existe
+    @Modifying
+    @Query(value = """
+            INSERT INTO revenue_rollup (rollup_year, rollup_month, laps_or_max_time_allowed, people_bucket, revenue, participants, bookings)
+            VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7)
+            ON CONFLICT (rollup_year, rollup_month, laps_or_max_time_allowed, people_bucket) DO UPDATE SET
+                revenue = revenue_rollup.revenue + EXCLUDED.revenue,
+                participants = revenue_rollup.participants + EXCLUDED.participants,
+                bookings = revenue_rollup.bookings + EXCLUDED.bookings
+            """, nativeQuery = true)
+    int applyDelta(int year, int month, int lapsOrMaxTimeAllowed, int peopleBucket, long revenue, long participants, long bookings);
+
+    // Bloquea las actualizaciones incrementales hasta que termine la reconstrucción
+    @Modifying
+    @Query(value = "LOCK TABLE revenue_rollup IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Modifying
+    @Query(value = "DELETE FROM revenue_rollup", nativeQuery = true)
+    int deleteAllCells();
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO revenue_rollup (rollup_year, rollup_month, laps_or_max_time_allowed, people_bucket, revenue, participants, bookings)
+            SELECT CAST(EXTRACT(YEAR FROM b.booking_date) AS int), CAST(EXTRACT(MONTH FROM b.booking_date) AS int),
+                   b.laps_or_max_time_allowed,
+                   CASE WHEN b.num_of_people BETWEEN 1 AND 2 THEN 2
+                        WHEN b.num_of_people BETWEEN 3 AND 5 THEN 5
+                        WHEN b.num_of_people BETWEEN 6 AND 10 THEN 10
+                        WHEN b.num_of_people BETWEEN 11 AND 15 THEN 15
+                        ELSE 0 END,
+                   COALESCE(SUM(CAST(b.base_price_amount AS bigint) * b.num_of_people), 0),
+                   COALESCE(SUM(b.num_of_people), 0),
+                   COUNT(*)
+            FROM booking b
+            WHERE b.booking_status = ?1 AND b.booking_date IS NOT NULL
+              AND b.laps_or_max_time_allowed IS NOT NULL AND b.num_of_people IS NOT NULL
+            GROUP BY 1, 2, 3, 4
+            """, nativeQuery = true)
+    int insertFromBookings(String status);
+}
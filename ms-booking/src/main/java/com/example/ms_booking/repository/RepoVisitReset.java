@@ -0,0 +1,18 @@
+package com.example.ms_booking.repository;
+
+import com.example.ms_booking.entity.EntityVisitReset;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RepoVisitReset extends JpaRepository<EntityVisitReset, String> {
+    // Devuelve 1 sólo para la instancia que registra primero el periodo
+    @Modifying
+    @Query(value = "INSERT INTO visit_reset (period, reset_at) VALUES (?1, now()) ON CONFLICT (period) DO NOTHING", nativeQuery = true)
+    int claimPeriod(String period);
+
+    // Los periodos YYYY-MM se ordenan igual como texto y como fecha
+    boolean existsByPeriodLessThan(String period);
+}
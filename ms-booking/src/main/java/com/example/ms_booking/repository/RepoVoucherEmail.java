@@ -0,0 +1,47 @@
+package com.example.ms_booking.repository;
+
+import com.example.ms_booking.entity.EntityVoucherEmail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RepoVoucherEmail extends JpaRepository<EntityVoucherEmail, Long> {
+
+    // Toma hasta ?4 correos vencidos. SKIP LOCKED evita que dos workers tomen el mismo correo y
+    // los que quedaron "enviando" de un worker caído se vuelven a tomar cuando vence su plazo (?2);
+    // ese plazo vencido cuenta como un intento fallido, así un correo que bota al worker no se reintenta para siempre
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE voucher_email_outbox SET status = 'enviando', next_attempt_at = ?2, claim_token = ?3,
+                   attempts = attempts + CASE WHEN status = 'enviando' THEN 1 ELSE 0 END,
+                   last_error = CASE WHEN status = 'enviando' THEN 'Plazo de envío vencido' ELSE last_error END
+            WHERE id IN (SELECT id FROM voucher_email_outbox
+                         WHERE status IN ('pendiente', 'enviando') AND next_attempt_at <= ?1
+                         ORDER BY id LIMIT ?4 FOR UPDATE SKIP LOCKED)
+            """, nativeQuery = true)
+    int claimBatch(LocalDateTime now, LocalDateTime leaseUntil, String claimToken, int limit);
+
+    List<EntityVoucherEmail> findByClaimToken(String claimToken);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EntityVoucherEmail e SET e.status = 'enviado', e.sentAt = ?2, e.claimToken = NULL WHERE e.id IN ?1")
+    int markSent(Collection<Long> ids, LocalDateTime sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE EntityVoucherEmail e SET e.status = ?2, e.attempts = ?3, e.nextAttemptAt = ?4,
+                   e.lastError = ?5, e.claimToken = NULL
+            WHERE e.id = ?1
+            """)
+    int markFailed(Long id, String status, int attempts, LocalDateTime nextAttemptAt, String lastError);
+}
@@ -1,16 +1,16 @@
 package com.example.ms_booking.service;
 
+import com.example.ms_booking.dto.BookingSummaryDTO;
+import com.example.ms_booking.dto.RevenueCellDTO;
 import com.example.ms_booking.entity.EntityBooking;
-import com.example.ms_booking.entity.EntityClient;
 import com.example.ms_booking.exception.BookingValidationException;
 import com.example.ms_booking.repository.RepoBooking;
-import com.example.ms_booking.repository.RepoClient;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,29 +18,44 @@ import java.util.List;
 public class ServiceBooking {
 
     private final RepoBooking repoBooking;
-    private final RepoClient repoClient;
-    private final RestTemplate restTemplate;
-
-    public ServiceBooking(RepoBooking repoBooking, RepoClient repoClient, RestTemplate restTemplate) {
+    private final ServicePricing servicePricing;
+    private final ServiceOccupancy serviceOccupancy;
+    private final ServiceSlotLock serviceSlotLock;
+    private final ServiceRevenueRollup serviceRevenueRollup;
+    private final ServiceVoucherCache serviceVoucherCache;
+    private final ServiceRackOutbox serviceRackOutbox;
+
+    public ServiceBooking(RepoBooking repoBooking, ServicePricing servicePricing, ServiceOccupancy serviceOccupancy,
+                          ServiceSlotLock serviceSlotLock, ServiceRevenueRollup serviceRevenueRollup,
+                          ServiceVoucherCache serviceVoucherCache, ServiceRackOutbox serviceRackOutbox) {
         this.repoBooking = repoBooking;
-        this.repoClient = repoClient;
-        this.restTemplate = restTemplate;
+        this.servicePricing = servicePricing;
+        this.serviceOccupancy = serviceOccupancy;
+        this.serviceSlotLock = serviceSlotLock;
+        this.serviceRevenueRollup = serviceRevenueRollup;
+        this.serviceVoucherCache = serviceVoucherCache;
+        this.serviceRackOutbox = serviceRackOutbox;
     }
 
     private static final String STATUS_CONFIRMADA = "confirmada";
 
+    @Transactional
     public void saveBooking(EntityBooking booking) {
         // Validar datos de la reserva
         validateBooking(booking);
 
-        // Establecer tarifa base y duración de la reserva
-        setPriceAndDuration(booking);
+        // Establecer tarifa base y duración y consultar los descuentos (sin bloquear filas)
+        ServicePricing.Quote quote = servicePricing.quoteBooking(booking);
+
+        // Los candados del horario se mantienen hasta el commit
+        serviceSlotLock.lockUntilCompletion(booking.getBookingDate(), booking.getBookingTime(), booking.getBookingTimeEnd());
 
-        // Establecer descuentos
-        applyDiscountsPerClient(booking);
+        // Registrar las visitas y aplicar los descuentos; las filas de los clientes quedan
+        // bloqueadas sólo hasta el commit, sin esperar llamadas remotas
+        servicePricing.applyQuote(booking, quote);
 
         // Calcular el total con IVA
-        String totalWithIva = calculateTotalWithIva(booking.getTotalPrice(), booking.getIva());
+        int[] totalWithIva = calculateTotalWithIva(booking.getTotalPrice(), booking.getIva());
         booking.setTotalWithIva(totalWithIva);
 
         // Calcular el monto total a pagar
@@ -49,8 +64,11 @@ public class ServiceBooking {
         // Establecer estado de la reserva
         booking.setBookingStatus("sin confirmar");
 
-        // Guardar la reserva
+        // Guardar la reserva y ocupar su horario (se rechaza si se superpone con otra)
+        boolean created = booking.getId() == null;
         repoBooking.save(booking);
+        serviceOccupancy.occupy(booking, created);
+        serviceVoucherCache.evict(booking.getId());
     }
 
     //-----------------------------------------------------------
@@ -94,128 +112,6 @@ public class ServiceBooking {
         return true;
     }
 
-    //-----------------------------------------------------------
-    //    Métodos para establecer tarifas y duración de la reserva
-    //-----------------------------------------------------------
-
-    /**
-     * Método para obtener el precio base de acuerdo a la cantidad de vueltas o tiempo máximo permitido
-     * @param lapsOrMaxTimeAllowed vueltas o tiempo máximo permitido
-     * @return ResponseEntity<Integer>
-     */
-    public Integer getBasePrice(Integer lapsOrMaxTimeAllowed) {
-        return restTemplate.getForObject("http://ms-rates/rates/basePrice/" + lapsOrMaxTimeAllowed, Integer.class);
-    }
-
-    /**
-     * Método para obtener la duración de acuerdo a la cantidad de vueltas o tiempo máximo permitido
-     * @param lapsOrMaxTimeAllowed vueltas o tiempo máximo permitido
-     * @return ResponseEntity<Integer>
-     */
-    public Integer getDuration(Integer lapsOrMaxTimeAllowed) {
-        return restTemplate.getForObject("http://ms-rates/rates/duration/" + lapsOrMaxTimeAllowed, Integer.class);
-    }
-
-    /**
-     * Método para establecer el precio base y la duración de la reserva
-     * @param booking Reserva a la que se le establecerá el precio y la duración
-     */
-    public void setPriceAndDuration(EntityBooking booking){
-        Integer lapsOrMaxTimeAllowed = booking.getLapsOrMaxTimeAllowed();
-        Integer basePrice = getBasePrice(lapsOrMaxTimeAllowed);
-        booking.setBasePrice(String.valueOf(basePrice));
-        Integer duration = getDuration(lapsOrMaxTimeAllowed);
-        booking.setBookingTimeEnd(booking.getBookingTime().plusMinutes(duration));
-    }
-
-    //-----------------------------------------------------------
-    //    Métodos para establecer descuentos
-    //-----------------------------------------------------------
-
-    public Integer discountForNumOfPeople(int numOfPeople, int basePrice) {
-        return restTemplate.getForObject("http://ms-discounts1/discounts1/discount/" + numOfPeople + "/" + basePrice, Integer.class);
-    }
-
-    public Integer discountForVisitsPerMonth(int visitsPerMonth, int basePrice) {
-        return restTemplate.getForObject("http://ms-discounts2/discounts2/discount/" + visitsPerMonth + "/" + basePrice, Integer.class);
-    }
-
-    public Integer discountForBirthday(String clientBirthday, String bookingDayMonth, int basePrice) {
-        return restTemplate.getForObject("http://ms-special-rates/special-rates/discount/" + clientBirthday + "/" + bookingDayMonth + "/" + basePrice, Integer.class);
-    }
-
-    // Dentro de ServiceBooking.java
-
-    private boolean canApplyBirthdayDiscount(int numOfPeople, int bDayDiscountApplied) {
-        return (numOfPeople >= 3 && numOfPeople <= 5 && bDayDiscountApplied == 0) ||
-                (numOfPeople >= 6 && numOfPeople <= 10 && bDayDiscountApplied < 3);
-    }
-
-    private boolean isDiscountApplied(Integer discount, Integer basePrice) {
-        return !discount.equals(basePrice);
-    }
-
-    private DiscountResult applyDiscounts(EntityClient client, int numOfPeople, int basePrice, String bookingDayMonth, int bDayDiscountApplied) {
-        int discount = basePrice;
-        String discountType = "no";
-        int birthdayApplied = bDayDiscountApplied;
-
-        if (client != null) {
-            if (canApplyBirthdayDiscount(numOfPeople, bDayDiscountApplied)) {
-                Integer birthdayDiscount = discountForBirthday(client.getClientBirthday(), bookingDayMonth, basePrice);
-                if (isDiscountApplied(birthdayDiscount, basePrice)) {
-                    discount = birthdayDiscount;
-                    discountType = "cumpleaños";
-                    birthdayApplied++;
-                    return new DiscountResult(discount, discountType, birthdayApplied);
-                }
-            }
-            Integer visitsDiscount = discountForVisitsPerMonth(client.getVisitsPerMonth(), basePrice);
-            if (isDiscountApplied(visitsDiscount, basePrice)) {
-                discount = visitsDiscount;
-                discountType = "visitas";
-            } else if (numOfPeople >= 3 && numOfPeople <= 15) {
-                discount = discountForNumOfPeople(numOfPeople, basePrice);
-                discountType = "integrantes";
-            }
-            client.setVisitsPerMonth(client.getVisitsPerMonth() + 1);
-        }
-        return new DiscountResult(discount, discountType, birthdayApplied);
-    }
-
-    private static class DiscountResult {
-        int discount;
-        String discountType;
-        int bDayDiscountApplied;
-
-        DiscountResult(int discount, String discountType, int bDayDiscountApplied) {
-            this.discount = discount;
-            this.discountType = discountType;
-            this.bDayDiscountApplied = bDayDiscountApplied;
-        }
-    }
-
-    public void applyDiscountsPerClient(EntityBooking booking) {
-        Integer basePrice = Integer.parseInt(booking.getBasePrice());
-        Integer numOfPeople = booking.getNumOfPeople();
-        String[] clientsRut = booking.getClientsRUT().split(",");
-        StringBuilder discountsList = new StringBuilder();
-        StringBuilder discountsListType = new StringBuilder();
-        String bookingDayMonth = booking.getBookingDate().format(DateTimeFormatter.ofPattern("dd-MM"));
-        int bDayDiscountApplied = 0;
-
-        for (String rut : clientsRut) {
-            EntityClient client = repoClient.findByClientRUT(rut);
-            DiscountResult result = applyDiscounts(client, numOfPeople, basePrice, bookingDayMonth, bDayDiscountApplied);
-            bDayDiscountApplied = result.bDayDiscountApplied;
-            discountsList.append(result.discount).append(",");
-            discountsListType.append(result.discountType).append(",");
-        }
-
-        booking.setDiscounts(discountsListType.toString());
-        booking.setTotalPrice(discountsList.toString());
-    }
-
     //-----------------------------------------------------------
     //    Métodos para calcular el precio total a pagar
     //-----------------------------------------------------------
@@ -224,33 +120,24 @@ public class ServiceBooking {
      * Método para calcular el precio total con IVA
      * @param totalPrice precio total a pagar por cada cliente
      * @param iva porcentaje de IVA
-     * @return precio total con IVA
+     * @return precio total con IVA por cada cliente
      */
-    public String calculateTotalWithIva(String totalPrice, String iva) {
-        Integer ivaI = Integer.parseInt(iva);
-        List<String> totalPriceList = List.of(totalPrice.split(","));
-        StringBuilder totalWithIva = new StringBuilder();
-        for (String total : totalPriceList) {
-            Integer price = Integer.parseInt(total);
-            Integer totalWithIvaValue = price + ((price * ivaI) / 100);
-            totalWithIva.append(totalWithIvaValue).append(",");
-        }
-        if (totalWithIva.length() > 0) {
-            totalWithIva.setLength(totalWithIva.length() - 1); // Elimina la última coma al añadir los precios
+    public int[] calculateTotalWithIva(int[] totalPrice, Integer iva) {
+        int[] totalWithIva = new int[totalPrice.length];
+        for (int i = 0; i < totalPrice.length; i++) {
+            totalWithIva[i] = totalPrice[i] + ((totalPrice[i] * iva) / 100);
         }
-        return totalWithIva.toString();
+        return totalWithIva;
     }
 
     /**
      * Método para calcular el precio total a pagar
-     * @param totalWithIva precio total con IVA
+     * @param totalWithIva precio total con IVA por cada cliente
      * @return precio total a pagar
      */
-    public Integer calculateTotalPrice(String totalWithIva) {
-        Integer totalPrice = 0;
-        List<String> totalWithIvaList = List.of(totalWithIva.split(","));
-        for (String total : totalWithIvaList) {
-            Integer price = Integer.parseInt(total);
+    public Integer calculateTotalPrice(int[] totalWithIva) {
+        int totalPrice = 0;
+        for (int price : totalWithIva) {
             totalPrice += price;
         }
         return totalPrice;
@@ -264,60 +151,90 @@ public class ServiceBooking {
      * Método para confirmar una reserva
      * @param bookingId id de la reserva
      */
+    @Transactional
     public void confirmBooking(Long bookingId) {
         EntityBooking booking = repoBooking.findById(bookingId)
                 .orElseThrow(() -> new BookingValidationException("Reserva no encontrada con ID: " + bookingId));
+        serviceSlotLock.lockUntilCompletion(booking.getBookingDate(), booking.getBookingTime(), booking.getBookingTimeEnd());
+        serviceOccupancy.occupy(booking);
+        if (!STATUS_CONFIRMADA.equals(booking.getBookingStatus())) {
+            serviceRevenueRollup.addConfirmed(booking);
+        }
         booking.setBookingStatus(STATUS_CONFIRMADA);
-        saveRack(booking.getId(), booking.getBookingDate(), booking.getBookingTime(), booking.getBookingTimeEnd(), booking.getBookingStatus(), booking.getClientsNames().split(",")[0]);
         repoBooking.save(booking);
+        // Se replica en ms-rack después del commit; confirmar no espera a ms-rack
+        serviceRackOutbox.upsert(booking);
+        serviceVoucherCache.evict(bookingId);
     }
 
     /**
      * Método para cancelar una reserva
      * @param bookingId id de la reserva
      */
+    @Transactional
     public void cancelBooking(Long bookingId) {
         EntityBooking booking = repoBooking.findById(bookingId)
                 .orElseThrow(() -> new BookingValidationException("Reserva no encontrada con ID: " + bookingId));
+        if (STATUS_CONFIRMADA.equals(booking.getBookingStatus())) {
+            serviceRevenueRollup.removeConfirmed(booking);
+        }
         booking.setBookingStatus("cancelada");
-        deleteRack(booking.getId());
         repoBooking.save(booking);
+        serviceRackOutbox.delete(booking.getId());
+        serviceOccupancy.release(booking.getBookingDate(), booking.getId());
+        serviceVoucherCache.evict(bookingId);
     }
 
-    //-----------------------------------------------------------
-    //    Métodos para obtener reservas para el rack semanal
-    //-----------------------------------------------------------
+    //------------------------------------------------------------
+    //    Métodos para obtener reservas para el reporte
+    //------------------------------------------------------------
 
-    public void saveRack(Long id, LocalDate bookingDate, LocalTime bookingTime, LocalTime bookingTimeEnd, String bookingStatus, String clientName){
-        restTemplate.postForObject("http://ms-rack/rack/save/" + id + "/" + bookingDate + "/" + bookingTime + "/" + bookingTimeEnd + "/" + bookingStatus + "/" + clientName, null, String.class);
+    // Sólo las columnas que usan los reportes, sin integrantes ni montos por integrante
+    public List<BookingSummaryDTO> findByStatusAndDayAndLapsOrMaxTime(String status, Integer year, String month, Integer maxTimeAllowed) {
+        LocalDate from = firstDayOfMonth(year, Integer.parseInt(month));
+        return repoBooking.findSummariesByStatusAndDateRangeAndLapsOrMaxTime(status, from, from.plusMonths(1), maxTimeAllowed);
     }
 
-    public void deleteRack(Long id){
-        restTemplate.delete("http://ms-rack/rack/delete/" + id);
+    public List<BookingSummaryDTO> findByStatusAndDayAndNumOfPeople1or2(String status, Integer year, String month, Integer numOfPeople) {
+        return findByStatusAndMonthAndNumOfPeople(status, year, month, 1, 2);
     }
 
-    //------------------------------------------------------------
-    //    Métodos para obtener reservas para el reporte
-    //------------------------------------------------------------
+    public List<BookingSummaryDTO> findByStatusAndDayAndNumOfPeople3to5(String status, Integer year, String month, Integer numOfPeople) {
+        return findByStatusAndMonthAndNumOfPeople(status, year, month, 3, 5);
+    }
 
-    public List<EntityBooking> findByStatusAndDayAndLapsOrMaxTime(String status, String month, Integer maxTimeAllowed) {
-        return repoBooking.findByStatusAndDayAndLapsOrMaxTime(status, month, maxTimeAllowed);
+    public List<BookingSummaryDTO> findByStatusAndDayAndNumOfPeople6to10(String status, Integer year, String month, Integer numOfPeople) {
+        return findByStatusAndMonthAndNumOfPeople(status, year, month, 6, 10);
     }
 
-    public List<EntityBooking> findByStatusAndDayAndNumOfPeople1or2(String status, String month, Integer numOfPeople) {
-        return repoBooking.findByStatusAndDayAndNumOfPeople1or2(status, month, numOfPeople);
+    public List<BookingSummaryDTO> findByStatusAndDayAndNumOfPeople11to15(String status, Integer year, String month, Integer numOfPeople) {
+        return findByStatusAndMonthAndNumOfPeople(status, year, month, 11, 15);
     }
 
-    public List<EntityBooking> findByStatusAndDayAndNumOfPeople3to5(String status, String month, Integer numOfPeople) {
-        return repoBooking.findByStatusAndDayAndNumOfPeople3to5(status, month, numOfPeople);
+    private List<BookingSummaryDTO> findByStatusAndMonthAndNumOfPeople(String status, Integer year, String month, int minPeople, int maxPeople) {
+        LocalDate from = firstDayOfMonth(year, Integer.parseInt(month));
+        return repoBooking.findSummariesByStatusAndDateRangeAndNumOfPeople(status, from, from.plusMonths(1), minPeople, maxPeople);
     }
 
-    public List<EntityBooking> findByStatusAndDayAndNumOfPeople6to10(String status, String month, Integer numOfPeople) {
-        return repoBooking.findByStatusAndDayAndNumOfPeople6to10(status, month, numOfPeople);
+    private LocalDate firstDayOfMonth(Integer year, Integer month) {
+        return YearMonth.of(year, month).atDay(1);
     }
 
-    public List<EntityBooking> findByStatusAndDayAndNumOfPeople11to15(String status, String month, Integer numOfPeople) {
-        return repoBooking.findByStatusAndDayAndNumOfPeople11to15(status, month, numOfPeople);
+    /**
+     * Método para obtener los ingresos de un rango de meses de un año, agrupados por mes, vueltas
+     * o tiempo máximo y tramo de integrantes, en una sola consulta
+     * @param status estado de la reserva
+     * @param year año
+     * @param startMonth mes de inicio
+     * @param endMonth mes de fin
+     * @return ingresos agrupados
+     */
+    public List<RevenueCellDTO> getRevenue(String status, Integer year, Integer startMonth, Integer endMonth) {
+        // Las reservas confirmadas se leen de los ingresos acumulados
+        if (STATUS_CONFIRMADA.equals(status)) {
+            return serviceRevenueRollup.getRevenue(year, startMonth, endMonth);
+        }
+        return repoBooking.sumRevenueByMonthLapsAndPeople(status, firstDayOfMonth(year, startMonth), firstDayOfMonth(year, endMonth).plusMonths(1));
     }
 
     //------------------------------------------------------------
@@ -337,7 +254,7 @@ public class ServiceBooking {
     }
 
     public List<EntityBooking> findByClientsRUTContains(String rut){
-        return repoBooking.findByClientsRUTContains(rut);
+        return repoBooking.findByParticipantRut(rut);
     }
 
 
@@ -347,21 +264,7 @@ public class ServiceBooking {
      * @return lista de reservas
      */
     public List<EntityBooking> getBookingsByUserRut(String rut) {
-        List<EntityBooking> bookings = repoBooking.findByClientsRUTContains(rut);
-        List<EntityBooking> filteredBookings = new ArrayList<>();
-
-        if (bookings.isEmpty()) {
-            return new ArrayList<>();
-        } else {
-            for (EntityBooking booking : bookings) {
-                // Verificar si el RUT del cliente coincide con el RUT de la reserva
-                List<String> clientsRUT = List.of(booking.getClientsRUT().split(","));
-                if (clientsRUT.get(0).equals(rut)) {
-                    filteredBookings.add(booking);
-                }
-            }
-        }
-        return filteredBookings;
+        return repoBooking.findByOwnerRut(rut);
     }
 
     /**
@@ -392,6 +295,27 @@ public class ServiceBooking {
         return times;
     }
 
+    /**
+     * Método para obtener las horas de inicio libres de un día
+     * @param date fecha de la reserva
+     * @param minutes duración de la reserva en minutos
+     * @return lista de horas de inicio libres
+     */
+    public List<LocalTime> getFreeSlots(LocalDate date, int minutes) {
+        return serviceOccupancy.findFreeSlots(date, minutes);
+    }
+
+    /**
+     * Método para saber si un horario está libre
+     * @param date fecha de la reserva
+     * @param time hora de inicio
+     * @param minutes duración de la reserva en minutos
+     * @return true si el horario está libre
+     */
+    public boolean isSlotFree(LocalDate date, LocalTime time, int minutes) {
+        return serviceOccupancy.isFree(date, time, minutes);
+    }
+
     /**
      * Método para obtener una lista de reservas confirmadas
      * @return lista de reservas confirmadas
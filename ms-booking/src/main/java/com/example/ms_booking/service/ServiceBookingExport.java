@@ -0,0 +1,58 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.dto.BookingExportRowDTO;
+import com.example.ms_booking.repository.RepoBooking;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+/**
+ * Exportación de reservas como JSON por líneas (una reserva por línea). Las filas se leen con un
+ * cursor y se escriben a medida que llegan, por lo que la memoria no depende del rango exportado.
+ */
+@Service
+public class ServiceBookingExport {
+
+    private final RepoBooking repoBooking;
+    private final ObjectMapper objectMapper;
+
+    public ServiceBookingExport(RepoBooking repoBooking, ObjectMapper objectMapper) {
+        this.repoBooking = repoBooking;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Método para escribir las reservas de un rango de fechas en un stream de salida
+     * @param status estado de la reserva
+     * @param from fecha de inicio (incluida)
+     * @param to fecha de fin (excluida)
+     * @param out stream de salida
+     */
+    @Transactional(readOnly = true)
+    public void writeRows(String status, LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        try (Stream<BookingExportRowDTO> rows = repoBooking.streamForExport(status, from, to);
+             SequenceWriter writer = objectMapper.writer()
+                     .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                     .withRootValueSeparator("\n")
+                     .writeValues(out)) {
+            rows.forEach(row -> {
+                try {
+                    writer.write(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+}
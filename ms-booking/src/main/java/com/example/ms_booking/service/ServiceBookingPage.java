@@ -0,0 +1,139 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.dto.BookingPageDTO;
+import com.example.ms_booking.entity.EntityBooking;
+import com.example.ms_booking.exception.BookingValidationException;
+import com.example.ms_booking.repository.RepoBooking;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Listados de reservas paginados por cursor. El cursor es la (fecha, id) de la última reserva
+ * entregada, así cada página se lee desde el índice sin recorrer las filas de páginas anteriores
+ * y no se repiten ni saltan reservas cuando se insertan otras entre una página y la siguiente.
+ */
+@Service
+public class ServiceBookingPage {
+
+    private static final String STATUS_CONFIRMADA = "confirmada";
+    // Anterior a cualquier reserva real; se usa como cursor de la primera página
+    private static final LocalDate FIRST_DATE = LocalDate.of(1, 1, 1);
+    private static final long FIRST_ID = 0L;
+    private static final char CURSOR_SEPARATOR = '_';
+
+    private final RepoBooking repoBooking;
+    private final int defaultSize;
+    private final int maxSize;
+
+    public ServiceBookingPage(RepoBooking repoBooking,
+                              @Value("${booking.page.default-size:50}") int defaultSize,
+                              @Value("${booking.page.max-size:500}") int maxSize) {
+        this.repoBooking = repoBooking;
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+    }
+
+    //------------------------------------------------------------
+
+    /**
+     * Método para obtener una página de reservas confirmadas
+     * @param after cursor devuelto por la página anterior, null para la primera
+     * @param size cantidad de reservas por página, null para el valor por defecto
+     * @return página de reservas ordenadas por fecha e id
+     */
+    public BookingPageDTO getBookings(String after, Integer size) {
+        Cursor cursor = parseCursor(after);
+        int limit = pageSize(size);
+        return toPage(repoBooking.findPageByStatus(STATUS_CONFIRMADA, cursor.date, cursor.id, fetch(limit)), limit);
+    }
+
+    /**
+     * Método para obtener una página de reservas de una fecha
+     * @param bookingDate fecha de la reserva
+     * @param after cursor devuelto por la página anterior, null para la primera
+     * @param size cantidad de reservas por página, null para el valor por defecto
+     * @return página de reservas ordenadas por id
+     */
+    public BookingPageDTO findByBookingDate(LocalDate bookingDate, String after, Integer size) {
+        Cursor cursor = parseCursor(after);
+        if (after != null && !after.isBlank() && !cursor.date.equals(bookingDate)) {
+            throw new BookingValidationException("El cursor no corresponde a la fecha " + bookingDate);
+        }
+        int limit = pageSize(size);
+        return toPage(repoBooking.findPageByBookingDate(bookingDate, cursor.id, fetch(limit)), limit);
+    }
+
+    /**
+     * Método para obtener una página de reservas en las que participa un cliente
+     * @param rut RUT del cliente
+     * @param after cursor devuelto por la página anterior, null para la primera
+     * @param size cantidad de reservas por página, null para el valor por defecto
+     * @return página de reservas ordenadas por fecha e id
+     */
+    public BookingPageDTO findByClientsRUTContains(String rut, String after, Integer size) {
+        Cursor cursor = parseCursor(after);
+        int limit = pageSize(size);
+        return toPage(repoBooking.findPageByParticipantRut(rut, cursor.date, cursor.id, fetch(limit)), limit);
+    }
+
+    /**
+     * Método para obtener una página de reservas hechas por un cliente
+     * @param rut RUT del cliente
+     * @param after cursor devuelto por la página anterior, null para la primera
+     * @param size cantidad de reservas por página, null para el valor por defecto
+     * @return página de reservas ordenadas por fecha e id
+     */
+    public BookingPageDTO getBookingsByUserRut(String rut, String after, Integer size) {
+        Cursor cursor = parseCursor(after);
+        int limit = pageSize(size);
+        return toPage(repoBooking.findPageByOwnerRut(rut, cursor.date, cursor.id, fetch(limit)), limit);
+    }
+
+    //------------------------------------------------------------
+
+    private int pageSize(Integer size) {
+        if (size == null) {
+            return defaultSize;
+        }
+        if (size < 1 || size > maxSize) {
+            throw new BookingValidationException("El tamaño de página debe estar entre 1 y " + maxSize);
+        }
+        return size;
+    }
+
+    // Se pide una fila extra para saber si existe una página siguiente sin hacer un count
+    private Pageable fetch(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+    private BookingPageDTO toPage(List<EntityBooking> rows, int limit) {
+        if (rows.size() <= limit) {
+            return new BookingPageDTO(rows, null);
+        }
+        List<EntityBooking> items = rows.subList(0, limit);
+        EntityBooking last = items.get(limit - 1);
+        return new BookingPageDTO(items, last.getBookingDate().toString() + CURSOR_SEPARATOR + last.getId());
+    }
+
+    private Cursor parseCursor(String after) {
+        if (after == null || after.isBlank()) {
+            return new Cursor(FIRST_DATE, FIRST_ID);
+        }
+        int separator = after.indexOf(CURSOR_SEPARATOR);
+        try {
+            return new Cursor(LocalDate.parse(after.substring(0, separator)),
+                    Long.parseLong(after.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new BookingValidationException("Cursor de página inválido: " + after);
+        }
+    }
+
+    private record Cursor(LocalDate date, long id) {
+    }
+}
@@ -12,9 +12,11 @@ import java.time.format.DateTimeParseException;
 public class ServiceClient {
 
     private final RepoClient repoClient;
+    private final ServiceClientCache serviceClientCache;
 
-    public ServiceClient(RepoClient repoClient) {
+    public ServiceClient(RepoClient repoClient, ServiceClientCache serviceClientCache) {
         this.repoClient = repoClient;
+        this.serviceClientCache = serviceClientCache;
     }
 
     /**
@@ -31,6 +33,7 @@ public class ServiceClient {
             client.setVisitsPerMonth(0);
 
             repoClient.save(client);
+            serviceClientCache.invalidate(rut);
         }
     }
 
@@ -40,19 +43,11 @@ public class ServiceClient {
      * @return Cliente encontrado o null si no existe
      */
     public EntityClient getClientByRut(String clientRUT) {
-        EntityClient client = repoClient.findByClientRUT(clientRUT);
-        if (client != null) {
-            return client;
-        } else {
-            String rutFormatted = convertRut(clientRUT);
-            client = repoClient.findByClientRUT(rutFormatted);
-            if (client != null) {
-                return client;
-            } else {
-                throw new ClientValidationException("El cliente no está registrado");
-            }
-
+        EntityClient client = serviceClientCache.getClient(clientRUT);
+        if (client == null) {
+            throw new ClientValidationException("El cliente no está registrado");
         }
+        return client;
     }
 
     /**
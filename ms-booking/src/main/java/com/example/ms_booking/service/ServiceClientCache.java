@@ -0,0 +1,141 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.entity.EntityClient;
+import com.example.ms_booking.repository.RepoClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché de clientes indexada por RUT normalizado (dígito verificador en mayúscula).
+ * Los clientes que faltan se cargan con una sola consulta por lote y las entradas se
+ * invalidan cuando el cliente se guarda. Siempre se entregan copias, nunca la instancia en caché.
+ */
+@Service
+public class ServiceClientCache {
+
+    private final RepoClient repoClient;
+    private final long ttlNanos;
+    private final Map<String, CachedClient> cache;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ServiceClientCache(RepoClient repoClient,
+                              MeterRegistry meterRegistry,
+                              @Value("${client.cache.ttl-ms:300000}") long ttlMs,
+                              @Value("${client.cache.max-entries:10000}") int maxEntries) {
+        this.repoClient = repoClient;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedClient> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = Counter.builder("client.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("client.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("client.cache.size", this, ServiceClientCache::size).register(meterRegistry);
+    }
+
+    private record CachedClient(EntityClient client, long loadedAt) {
+    }
+
+    /**
+     * Método para normalizar un RUT (sin espacios y con el dígito verificador en mayúscula)
+     * @param clientRUT RUT del cliente
+     * @return RUT normalizado
+     */
+    public static String normalizeRut(String clientRUT) {
+        return clientRUT == null ? null : clientRUT.trim().toUpperCase();
+    }
+
+    /**
+     * Método para obtener un cliente por su RUT
+     * @param clientRUT RUT del cliente
+     * @return copia del cliente o null si no existe
+     */
+    public EntityClient getClient(String clientRUT) {
+        return getClients(List.of(clientRUT)).get(normalizeRut(clientRUT));
+    }
+
+    /**
+     * Método para obtener varios clientes con una sola consulta para los que no están en caché
+     * @param clientsRUT RUTs de los clientes
+     * @return copias de los clientes encontrados, indexadas por RUT normalizado
+     */
+    public Map<String, EntityClient> getClients(Collection<String> clientsRUT) {
+        Map<String, EntityClient> result = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        long now = System.nanoTime();
+
+        synchronized (cache) {
+            for (String rut : clientsRUT) {
+                String key = normalizeRut(rut);
+                CachedClient cached = cache.get(key);
+                if (cached != null && now - cached.loadedAt() <= ttlNanos) {
+                    hits.increment();
+                    result.put(key, copy(cached.client()));
+                } else {
+                    misses.increment();
+                    // Se busca tanto el RUT recibido como el normalizado, para los registros antiguos
+                    missing.add(rut);
+                    missing.add(key);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<EntityClient> loaded = repoClient.findByClientRUTIn(missing);
+            synchronized (cache) {
+                for (EntityClient client : loaded) {
+                    String key = normalizeRut(client.getClientRUT());
+                    cache.put(key, new CachedClient(copy(client), now));
+                    result.putIfAbsent(key, copy(client));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Método para invalidar la entrada de un cliente
+     * @param clientRUT RUT del cliente
+     */
+    public void invalidate(String clientRUT) {
+        synchronized (cache) {
+            cache.remove(normalizeRut(clientRUT));
+        }
+    }
+
+    /**
+     * Método para vaciar la caché completa
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private EntityClient copy(EntityClient client) {
+        return new EntityClient(client.getClientRUT(), client.getClientName(), client.getClientEmail(),
+                client.getClientBirthday(), client.getVisitsPerMonth());
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.entity.EntityBooking;
+import com.example.ms_booking.exception.BookingConflictException;
+import com.example.ms_booking.repository.RepoBooking;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ocupación de la pista por día en celdas de 5 minutos. Cada día se construye la primera vez que
+ * se consulta, a partir de las reservas guardadas, y luego se mantiene al guardar, confirmar y
+ * cancelar reservas. Se guardan a lo más occupancy.max-days días; se descarta el usado hace más tiempo.
+ */
+@Service
+public class ServiceOccupancy {
+
+    static final int CELL_MINUTES = 5;
+    static final int CELLS_PER_DAY = 24 * 60 / CELL_MINUTES;
+
+    private static final String STATUS_CANCELADA = "cancelada";
+
+    private final RepoBooking repoBooking;
+    private final Map<LocalDate, DayOccupancy> days;
+
+    public ServiceOccupancy(RepoBooking repoBooking, @Value("${occupancy.max-days:400}") int maxDays) {
+        this.repoBooking = repoBooking;
+        this.days = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDate, DayOccupancy> eldest) {
+                return size() > maxDays;
+            }
+        };
+    }
+
+    /**
+     * Método para ocupar el horario de una reserva que ya existía antes de la transacción actual.
+     * Si la transacción se revierte, la reserva vuelve a su horario anterior.
+     * @param booking reserva con id, fecha, hora de inicio y hora de término
+     */
+    public void occupy(EntityBooking booking) {
+        occupy(booking, false);
+    }
+
+    /**
+     * Método para ocupar el horario de una reserva ya guardada.
+     * Si la transacción actual se revierte, la reserva vuelve a su horario anterior o, si se insertó
+     * en esta transacción, se libera su horario.
+     * @param booking reserva con id, fecha, hora de inicio y hora de término
+     * @param created true si la reserva se insertó en la transacción actual
+     */
+    public void occupy(EntityBooking booking, boolean created) {
+        int from = startCell(booking.getBookingTime());
+        int to = endCell(booking.getBookingTime(), booking.getBookingTimeEnd());
+        DayOccupancy day = getDay(booking.getBookingDate());
+        // Una reserva insertada en esta transacción no tiene horario anterior, aunque el día se haya
+        // cargado dentro de la transacción y ya incluya su fila sin confirmar
+        int[] previous = created ? null : day.range(booking.getId());
+        if (!day.tryAdd(booking.getId(), from, to, previous)) {
+            throw new BookingConflictException("El horario " + booking.getBookingTime() + " - " + booking.getBookingTimeEnd() + " ya está reservado");
+        }
+        if (previous == null || previous[0] != from || previous[1] != to) {
+            restoreOnRollback(booking.getBookingDate(), booking.getId(), previous);
+        }
+    }
+
+    /**
+     * Método para liberar el horario de una reserva.
+     * Si hay una transacción activa, el horario se libera sólo cuando se confirma.
+     * @param bookingDate fecha de la reserva
+     * @param bookingId id de la reserva
+     */
+    public void release(LocalDate bookingDate, Long bookingId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    releaseNow(bookingDate, bookingId);
+                }
+            });
+        } else {
+            releaseNow(bookingDate, bookingId);
+        }
+    }
+
+    private void releaseNow(LocalDate bookingDate, Long bookingId) {
+        DayOccupancy day = cachedDay(bookingDate);
+        if (day != null) {
+            day.remove(bookingId);
+        }
+    }
+
+    /**
+     * Método para saber si un horario está libre
+     * @param date fecha
+     * @param time hora de inicio
+     * @param minutes duración en minutos
+     * @return true si ninguna reserva se superpone con el horario
+     */
+    public boolean isFree(LocalDate date, LocalTime time, int minutes) {
+        int from = startCell(time);
+        return getDay(date).isFree(from, Math.min(from + cellsFor(minutes), CELLS_PER_DAY));
+    }
+
+    /**
+     * Método para obtener las horas de inicio libres de un día para una duración dada
+     * @param date fecha
+     * @param minutes duración en minutos
+     * @return horas de inicio, cada 5 minutos, en las que cabe la duración completa
+     */
+    public List<LocalTime> findFreeSlots(LocalDate date, int minutes) {
+        List<LocalTime> slots = new ArrayList<>();
+        for (int cell : getDay(date).freeStarts(cellsFor(minutes))) {
+            slots.add(LocalTime.MIDNIGHT.plusMinutes((long) cell * CELL_MINUTES));
+        }
+        return slots;
+    }
+
+    // Un día se carga una sola vez mientras esté en caché, así que la consulta dentro del candado es poco frecuente
+    private DayOccupancy getDay(LocalDate date) {
+        synchronized (days) {
+            DayOccupancy day = days.get(date);
+            if (day == null) {
+                day = load(date);
+                days.put(date, day);
+            }
+            return day;
+        }
+    }
+
+    private DayOccupancy cachedDay(LocalDate date) {
+        synchronized (days) {
+            return days.get(date);
+        }
+    }
+
+    private DayOccupancy load(LocalDate date) {
+        DayOccupancy day = new DayOccupancy();
+        for (EntityBooking booking : repoBooking.findByBookingDate(date)) {
+            if (booking.getBookingTime() == null || booking.getBookingTimeEnd() == null
+                    || STATUS_CANCELADA.equals(booking.getBookingStatus())) {
+                continue;
+            }
+            day.add(booking.getId(), startCell(booking.getBookingTime()), endCell(booking.getBookingTime(), booking.getBookingTimeEnd()));
+        }
+        return day;
+    }
+
+    private void restoreOnRollback(LocalDate date, Long bookingId, int[] previous) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        DayOccupancy day = cachedDay(date);
+                        if (day != null) {
+                            day.restore(bookingId, previous);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private static int cellsFor(int minutes) {
+        return (minutes + CELL_MINUTES - 1) / CELL_MINUTES;
+    }
+
+    private static int startCell(LocalTime time) {
+        return (time.getHour() * 60 + time.getMinute()) / CELL_MINUTES;
+    }
+
+    private static int endCell(LocalTime start, LocalTime end) {
+        if (!end.isAfter(start)) {
+            return CELLS_PER_DAY; // termina después de medianoche
+        }
+        return cellsFor(end.getHour() * 60 + end.getMinute());
+    }
+
+    /**
+     * Ocupación de un día. El BitSet marca las celdas con al menos una reserva y el contador por
+     * celda permite liberar una reserva sin borrar otra que se superponga con ella.
+     */
+    static class DayOccupancy {
+        private final BitSet occupied = new BitSet(CELLS_PER_DAY);
+        private final int[] counts = new int[CELLS_PER_DAY];
+        private final Map<Long, int[]> ranges = new HashMap<>();
+
+        synchronized int[] range(Long bookingId) {
+            int[] range = ranges.get(bookingId);
+            return range != null ? range.clone() : null;
+        }
+
+        synchronized boolean isFree(int from, int to) {
+            int next = occupied.nextSetBit(from);
+            return next < 0 || next >= to;
+        }
+
+        // Si el horario no está libre, la reserva queda en su horario anterior (o sin horario si es null)
+        synchronized boolean tryAdd(Long bookingId, int from, int to, int[] previous) {
+            remove(bookingId);
+            if (!isFree(from, to)) {
+                restore(bookingId, previous);
+                return false;
+            }
+            add(bookingId, from, to);
+            return true;
+        }
+
+        synchronized void restore(Long bookingId, int[] previous) {
+            remove(bookingId);
+            if (previous != null) {
+                add(bookingId, previous[0], previous[1]);
+            }
+        }
+
+        synchronized void add(Long bookingId, int from, int to) {
+            ranges.put(bookingId, new int[]{from, to});
+            for (int cell = from; cell < to; cell++) {
+                counts[cell]++;
+            }
+            occupied.set(from, to);
+        }
+
+        synchronized void remove(Long bookingId) {
+            int[] range = ranges.remove(bookingId);
+            if (range == null) {
+                return;
+            }
+            for (int cell = range[0]; cell < range[1]; cell++) {
+                if (--counts[cell] == 0) {
+                    occupied.clear(cell);
+                }
+            }
+        }
+
+        synchronized List<Integer> freeStarts(int length) {
+            List<Integer> starts = new ArrayList<>();
+            int from = occupied.nextClearBit(0);
+            while (from < CELLS_PER_DAY) {
+                int to = occupied.nextSetBit(from);
+                if (to < 0) {
+                    to = CELLS_PER_DAY;
+                }
+                for (int start = from; start + length <= to; start++) {
+                    starts.add(start);
+                }
+                from = occupied.nextClearBit(to);
+            }
+            return starts;
+        }
+    }
+}
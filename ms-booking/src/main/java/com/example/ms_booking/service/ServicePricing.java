@@ -0,0 +1,319 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.dto.DiscountBatchRequest;
+import com.example.ms_booking.entity.EntityBooking;
+import com.example.ms_booking.entity.EntityClient;
+import com.example.ms_booking.exception.PricingTimeoutException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+@Service
+public class ServicePricing {
+
+    private final ServiceClientCache serviceClientCache;
+    private final ServiceTariff serviceTariff;
+    private final ServiceVisitCounter serviceVisitCounter;
+    private final RestTemplate restTemplate;
+    private final ExecutorService pricingExecutor;
+    private final long deadlineMs;
+
+    public ServicePricing(ServiceClientCache serviceClientCache,
+                          ServiceTariff serviceTariff,
+                          ServiceVisitCounter serviceVisitCounter,
+                          RestTemplate restTemplate,
+                          @Qualifier("pricingExecutor") ExecutorService pricingExecutor,
+                          @Value("${pricing.deadline-ms:5000}") long deadlineMs) {
+        this.serviceClientCache = serviceClientCache;
+        this.serviceTariff = serviceTariff;
+        this.serviceVisitCounter = serviceVisitCounter;
+        this.restTemplate = restTemplate;
+        this.pricingExecutor = pricingExecutor;
+        this.deadlineMs = deadlineMs;
+    }
+
+    private static final String MESSAGE_TIMEOUT = "No fue posible calcular la tarifa de la reserva dentro del tiempo límite";
+    private static final String MESSAGE_BUSY = "El cálculo de tarifas está saturado, intente nuevamente";
+
+    /**
+     * Descuentos ya consultados de una reserva, antes de registrar las visitas de sus integrantes.
+     */
+    public record Quote(List<EntityClient> clients, int basePrice, Map<String, Integer> birthdayDiscounts,
+                        boolean[] birthdayApplied, Set<String> visitingRuts, Map<Integer, Integer> visitsDiscounts,
+                        Integer groupDiscount) {
+    }
+
+    /**
+     * Método para establecer tarifa base y duración de una reserva y consultar sus descuentos.
+     * La tarifa se obtiene de la caché local mientras los clientes se cargan en paralelo, y las
+     * consultas de descuentos se esperan con un plazo máximo por reserva. No modifica a los clientes:
+     * el descuento por visitas se consulta con las visitas actuales y se confirma en applyQuote.
+     * @param booking Reserva a tarificar
+     * @return descuentos consultados
+     */
+    public Quote quoteBooking(EntityBooking booking) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        Integer lapsOrMaxTimeAllowed = booking.getLapsOrMaxTimeAllowed();
+        String[] clientsRut = booking.getClientsRUT().split(",");
+
+        CompletableFuture<List<EntityClient>> clientsFuture = supply(() -> findClients(clientsRut));
+
+        Integer basePrice = serviceTariff.getBasePrice(lapsOrMaxTimeAllowed);
+        Integer duration = serviceTariff.getDuration(lapsOrMaxTimeAllowed);
+        booking.setBasePrice(basePrice);
+        booking.setBookingTimeEnd(booking.getBookingTime().plusMinutes(duration));
+
+        return quoteDiscounts(booking, await(clientsFuture, deadline), basePrice, deadline);
+    }
+
+    /**
+     * Método para registrar las visitas de los integrantes y aplicar los descuentos de una reserva.
+     * Se llama al final de la transacción para que las filas de los clientes queden bloqueadas el
+     * menor tiempo posible; sólo si otra reserva cambió las visitas de un cliente después de la
+     * cotización se vuelve a consultar su descuento por visitas.
+     * @param booking Reserva cotizada con quoteBooking
+     * @param quote descuentos consultados
+     */
+    public void applyQuote(EntityBooking booking, Quote quote) {
+        Map<String, Integer> previousVisits = serviceVisitCounter.registerVisits(quote.visitingRuts());
+
+        Map<Integer, Integer> visitsDiscounts = new HashMap<>(quote.visitsDiscounts());
+        List<Integer> missingKeys = new ArrayList<>();
+        for (Integer visits : new LinkedHashSet<>(previousVisits.values())) {
+            if (!visitsDiscounts.containsKey(visits)) {
+                missingKeys.add(visits);
+            }
+        }
+        if (!missingKeys.isEmpty()) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+            visitsDiscounts.putAll(zip(missingKeys, await(supply(() -> discountsForVisitsPerMonth(missingKeys, quote.basePrice())), deadline)));
+        }
+
+        applyDiscountsPerClient(booking, quote, previousVisits, visitsDiscounts);
+    }
+
+    //-----------------------------------------------------------
+    //    Métodos para consultar descuentos
+    //-----------------------------------------------------------
+
+    public Integer discountForNumOfPeople(int numOfPeople, int basePrice) {
+        return restTemplate.getForObject("http://ms-discounts1/discounts1/discount/" + numOfPeople + "/" + basePrice, Integer.class);
+    }
+
+    /**
+     * Método para obtener en una sola llamada los descuentos por visitas de varios clientes
+     * @param visitsPerMonth lista de visitas por mes
+     * @param basePrice precio base
+     * @return precios con descuento, en el mismo orden de la entrada
+     */
+    public Integer[] discountsForVisitsPerMonth(List<Integer> visitsPerMonth, int basePrice) {
+        DiscountBatchRequest request = new DiscountBatchRequest();
+        request.setBasePrice(basePrice);
+        request.setVisitsPerMonth(visitsPerMonth);
+        return restTemplate.postForObject("http://ms-discounts2/discounts2/discount/batch", request, Integer[].class);
+    }
+
+    /**
+     * Método para obtener en una sola llamada los descuentos por cumpleaños de varios clientes
+     * @param clientBirthdays lista de fechas de cumpleaños
+     * @param bookingDayMonth fecha de la reserva (día y mes)
+     * @param basePrice precio base
+     * @return precios con descuento, en el mismo orden de la entrada
+     */
+    public Integer[] discountsForBirthday(List<String> clientBirthdays, String bookingDayMonth, int basePrice) {
+        DiscountBatchRequest request = new DiscountBatchRequest();
+        request.setBasePrice(basePrice);
+        request.setBookingDayMonth(bookingDayMonth);
+        request.setClientBirthdays(clientBirthdays);
+        return restTemplate.postForObject("http://ms-special-rates/special-rates/discount/batch", request, Integer[].class);
+    }
+
+    //-----------------------------------------------------------
+    //    Métodos para aplicar descuentos
+    //-----------------------------------------------------------
+
+    private List<EntityClient> findClients(String[] clientsRut) {
+        Map<String, EntityClient> found = serviceClientCache.getClients(Arrays.asList(clientsRut));
+        List<EntityClient> clients = new ArrayList<>(clientsRut.length);
+        for (String rut : clientsRut) {
+            clients.add(found.get(ServiceClientCache.normalizeRut(rut)));
+        }
+        return clients;
+    }
+
+    private boolean isBirthdayDiscountPossible(int numOfPeople) {
+        return numOfPeople >= 3 && numOfPeople <= 10;
+    }
+
+    private boolean isGroupDiscountPossible(int numOfPeople) {
+        return numOfPeople >= 3 && numOfPeople <= 15;
+    }
+
+    private boolean canApplyBirthdayDiscount(int numOfPeople, int bDayDiscountApplied) {
+        return (numOfPeople >= 3 && numOfPeople <= 5 && bDayDiscountApplied == 0) ||
+                (numOfPeople >= 6 && numOfPeople <= 10 && bDayDiscountApplied < 3);
+    }
+
+    private boolean isDiscountApplied(Integer discount, Integer basePrice) {
+        return !discount.equals(basePrice);
+    }
+
+    /**
+     * Método para consultar los descuentos de cada integrante de la reserva.
+     * Primero se consultan en paralelo los descuentos por cumpleaños (en lote) y por número de integrantes,
+     * y se decide en orden qué integrantes reciben el de cumpleaños. Para el resto se consulta el descuento
+     * por visitas según sus visitas actuales.
+     */
+    private Quote quoteDiscounts(EntityBooking booking, List<EntityClient> clients, int basePrice, long deadline) {
+        int numOfPeople = booking.getNumOfPeople();
+        String bookingDayMonth = booking.getBookingDate().format(DateTimeFormatter.ofPattern("dd-MM"));
+
+        Set<String> birthdays = new LinkedHashSet<>();
+        for (EntityClient client : clients) {
+            if (client != null) {
+                birthdays.add(client.getClientBirthday());
+            }
+        }
+        List<String> birthdayKeys = isBirthdayDiscountPossible(numOfPeople) ? new ArrayList<>(birthdays) : List.of();
+
+        CompletableFuture<Integer[]> birthdayFuture = birthdayKeys.isEmpty()
+                ? CompletableFuture.completedFuture(new Integer[0])
+                : supply(() -> discountsForBirthday(birthdayKeys, bookingDayMonth, basePrice));
+        CompletableFuture<Integer> groupFuture = isGroupDiscountPossible(numOfPeople)
+                ? supply(() -> discountForNumOfPeople(numOfPeople, basePrice))
+                : CompletableFuture.completedFuture(basePrice);
+
+        Map<String, Integer> birthdayDiscounts = zip(birthdayKeys, await(birthdayFuture, deadline));
+
+        // Integrantes que reciben el descuento por cumpleaños; a los demás se les registra la visita
+        boolean[] birthdayApplied = new boolean[clients.size()];
+        Set<String> visitingRuts = new LinkedHashSet<>();
+        int bDayDiscountApplied = 0;
+        for (int i = 0; i < clients.size(); i++) {
+            EntityClient client = clients.get(i);
+            if (client == null) {
+                continue;
+            }
+            if (canApplyBirthdayDiscount(numOfPeople, bDayDiscountApplied)
+                    && isDiscountApplied(birthdayDiscounts.get(client.getClientBirthday()), basePrice)) {
+                birthdayApplied[i] = true;
+                bDayDiscountApplied++;
+            } else {
+                visitingRuts.add(client.getClientRUT());
+            }
+        }
+
+        Map<String, Integer> currentVisits = serviceVisitCounter.currentVisits(visitingRuts);
+        List<Integer> visitsKeys = new ArrayList<>(new LinkedHashSet<>(currentVisits.values()));
+        CompletableFuture<Integer[]> visitsFuture = visitsKeys.isEmpty()
+                ? CompletableFuture.completedFuture(new Integer[0])
+                : supply(() -> discountsForVisitsPerMonth(visitsKeys, basePrice));
+
+        Map<Integer, Integer> visitsDiscounts = zip(visitsKeys, await(visitsFuture, deadline));
+        Integer groupDiscount = await(groupFuture, deadline);
+
+        return new Quote(clients, basePrice, birthdayDiscounts, birthdayApplied, visitingRuts, visitsDiscounts, groupDiscount);
+    }
+
+    /**
+     * Método para aplicar los descuentos a cada integrante de la reserva, en orden de prioridad:
+     * cumpleaños, visitas (según las visitas previas a esta reserva) y finalmente integrantes.
+     */
+    private void applyDiscountsPerClient(EntityBooking booking, Quote quote, Map<String, Integer> previousVisits,
+                                         Map<Integer, Integer> visitsDiscounts) {
+        List<EntityClient> clients = quote.clients();
+        int basePrice = quote.basePrice();
+        int numOfPeople = booking.getNumOfPeople();
+
+        int[] discountsList = new int[clients.size()];
+        StringBuilder discountsListType = new StringBuilder();
+
+        for (int i = 0; i < clients.size(); i++) {
+            EntityClient client = clients.get(i);
+            int discount = basePrice;
+            String discountType = "no";
+
+            if (client != null) {
+                Integer visits = previousVisits.get(ServiceClientCache.normalizeRut(client.getClientRUT()));
+                Integer visitsDiscount = visits != null ? visitsDiscounts.get(visits) : basePrice;
+                if (quote.birthdayApplied()[i]) {
+                    discount = quote.birthdayDiscounts().get(client.getClientBirthday());
+                    discountType = "cumpleaños";
+                } else if (isDiscountApplied(visitsDiscount, basePrice)) {
+                    discount = visitsDiscount;
+                    discountType = "visitas";
+                } else if (isGroupDiscountPossible(numOfPeople)) {
+                    discount = quote.groupDiscount();
+                    discountType = "integrantes";
+                }
+            }
+            discountsList[i] = discount;
+            discountsListType.append(discountType).append(",");
+        }
+
+        booking.setDiscounts(discountsListType.toString());
+        booking.setTotalPrice(discountsList);
+    }
+
+    //-----------------------------------------------------------
+    //    Métodos auxiliares para la ejecución en paralelo
+    //-----------------------------------------------------------
+
+    private <K> Map<K, Integer> zip(List<K> keys, Integer[] values) {
+        if (values == null || values.length != keys.size()) {
+            throw new IllegalStateException("Respuesta de descuentos incompleta");
+        }
+        Map<K, Integer> result = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            result.put(keys.get(i), values[i]);
+        }
+        return result;
+    }
+
+    // Con el pool y su cola llenos la consulta se rechaza (504) en vez de ejecutarse fuera del plazo
+    private <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, pricingExecutor);
+        } catch (RejectedExecutionException e) {
+            throw new PricingTimeoutException(MESSAGE_BUSY);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future, long deadline) {
+        long remaining = deadline - System.nanoTime();
+        try {
+            return future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // La llamada HTTP no se interrumpe; el hilo del pool se libera con el timeout de lectura del RestTemplate
+            future.cancel(true);
+            throw new PricingTimeoutException(MESSAGE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PricingTimeoutException(MESSAGE_TIMEOUT);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
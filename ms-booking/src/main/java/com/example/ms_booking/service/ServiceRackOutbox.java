@@ -0,0 +1,153 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.dto.RackChangeDTO;
+import com.example.ms_booking.entity.EntityBooking;
+import com.example.ms_booking.entity.EntityRackOutbox;
+import com.example.ms_booking.repository.RepoRackOutbox;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Replicación de reservas confirmadas hacia ms-rack mediante una bandeja de salida.
+ * Los cambios se guardan en la misma transacción que el cambio de estado de la reserva, así que
+ * confirmar o cancelar no depende de que ms-rack responda. Un relay en segundo plano los envía
+ * por lotes y en orden; si ms-rack falla, el lote completo se reintenta con espera exponencial.
+ */
+@Service
+public class ServiceRackOutbox {
+
+    private static final String OPERATION_UPSERT = "upsert";
+    private static final String OPERATION_DELETE = "delete";
+    private static final long RELAY_LOCK_KEY = 0x7261636BL; // "rack"
+
+    private final RepoRackOutbox repoRackOutbox;
+    private final RestTemplate restTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long backoffNanos;
+    private final long maxBackoffNanos;
+
+    // Envío inmediato después del commit, sin esperar la próxima revisión programada
+    private final ExecutorService wakeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rack-relay-wake");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean wakePending = new AtomicBoolean(false);
+    private int failures;
+    private long retryAt;
+
+    public ServiceRackOutbox(RepoRackOutbox repoRackOutbox, RestTemplate restTemplate, TransactionTemplate transactionTemplate,
+                             @Value("${rack.relay.batch-size:200}") int batchSize,
+                             @Value("${rack.relay.backoff-ms:1000}") long backoffMs,
+                             @Value("${rack.relay.max-backoff-ms:60000}") long maxBackoffMs) {
+        this.repoRackOutbox = repoRackOutbox;
+        this.restTemplate = restTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.backoffNanos = TimeUnit.MILLISECONDS.toNanos(backoffMs);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMs);
+    }
+
+    //------------------------------------------------------------
+
+    /**
+     * Método para registrar el alta o cambio de una reserva en el rack (dentro de la transacción actual)
+     * @param booking reserva
+     */
+    public void upsert(EntityBooking booking) {
+        String clientName = booking.getParticipants().isEmpty() ? null : booking.getParticipants().get(0).getClientName();
+        record(new EntityRackOutbox(null, booking.getId(), OPERATION_UPSERT, booking.getBookingDate(), booking.getBookingTime(),
+                booking.getBookingTimeEnd(), booking.getBookingStatus(), clientName, LocalDateTime.now()));
+    }
+
+    /**
+     * Método para registrar la baja de una reserva del rack (dentro de la transacción actual)
+     * @param bookingId ID de la reserva
+     */
+    public void delete(Long bookingId) {
+        record(new EntityRackOutbox(null, bookingId, OPERATION_DELETE, null, null, null, null, null, LocalDateTime.now()));
+    }
+
+    /**
+     * Método para enviar a ms-rack los cambios pendientes
+     */
+    @Scheduled(fixedDelayString = "${rack.relay.poll-ms:5000}")
+    public synchronized void relay() {
+        if (failures > 0 && System.nanoTime() - retryAt < 0) {
+            return;
+        }
+        try {
+            Integer sent;
+            do {
+                sent = transactionTemplate.execute(status -> sendBatch());
+            } while (sent != null && sent == batchSize);
+            failures = 0;
+        } catch (RuntimeException e) {
+            failures++;
+            long delay = Math.min(backoffNanos << Math.min(failures - 1, 20), maxBackoffNanos);
+            retryAt = System.nanoTime() + delay;
+            System.out.println("No se pudo replicar el rack en ms-rack (intento " + failures + "): " + e.getMessage());
+        }
+    }
+
+    //------------------------------------------------------------
+
+    private void record(EntityRackOutbox change) {
+        repoRackOutbox.save(change);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
+        }
+    }
+
+    private void wake() {
+        if (wakePending.compareAndSet(false, true)) {
+            wakeExecutor.execute(() -> {
+                wakePending.set(false);
+                relay();
+            });
+        }
+    }
+
+    // Los cambios se borran de la bandeja en la misma transacción, sólo si ms-rack los aceptó
+    private int sendBatch() {
+        if (!repoRackOutbox.tryRelayLock(RELAY_LOCK_KEY)) {
+            return 0;
+        }
+        List<EntityRackOutbox> batch = repoRackOutbox.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<RackChangeDTO> changes = new ArrayList<>(batch.size());
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (EntityRackOutbox change : batch) {
+            changes.add(new RackChangeDTO(change.getBookingId(), change.getOperation(), change.getBookingDate(),
+                    change.getBookingTime(), change.getBookingTimeEnd(), change.getBookingStatus(), change.getClientName()));
+            ids.add(change.getId());
+        }
+        restTemplate.postForObject("http://ms-rack/rack/batch", changes, Void.class);
+        repoRackOutbox.deleteAllByIdInBatch(ids);
+        return batch.size();
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.dto.RackChangeDTO;
+import com.example.ms_booking.dto.RackDayDigestDTO;
+import com.example.ms_booking.dto.RackReconcileStatusDTO;
+import com.example.ms_booking.entity.EntityBooking;
+import com.example.ms_booking.repository.RepoBooking;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Reconciliación entre las reservas confirmadas y el rack de ms-rack. Recorre las fechas por
+ * tramos de días y compara un hash por día calculado en cada base de datos; sólo de los días
+ * distintos se traen las filas y se corrigen. Las correcciones se escriben en la bandeja de salida
+ * del rack, así se envían por lotes y en orden con los demás cambios. La memoria usada depende
+ * del tamaño del tramo y no de los años de historia.
+ */
+@Service
+public class ServiceRackReconciler {
+
+    private static final String STATUS_CONFIRMADA = "confirmada";
+
+    private final RepoBooking repoBooking;
+    private final ServiceRackOutbox serviceRackOutbox;
+    private final RestTemplate restTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkDays;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rack-reconcile");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final Counter upsertCounter;
+    private final Counter deleteCounter;
+
+    // Avance de la ejecución actual o de la última
+    private LocalDate from;
+    private LocalDate to;
+    private LocalDate checkedUntil;
+    private long daysChecked;
+    private long daysRepaired;
+    private long upserts;
+    private long deletes;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String lastError;
+
+    public ServiceRackReconciler(RepoBooking repoBooking, ServiceRackOutbox serviceRackOutbox, RestTemplate restTemplate,
+                                 TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                                 @Value("${rack.reconcile.chunk-days:31}") int chunkDays) {
+        this.repoBooking = repoBooking;
+        this.serviceRackOutbox = serviceRackOutbox;
+        this.restTemplate = restTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkDays = chunkDays;
+
+        this.upsertCounter = Counter.builder("rack.reconcile.repairs").tag("operation", "upsert").register(meterRegistry);
+        this.deleteCounter = Counter.builder("rack.reconcile.repairs").tag("operation", "delete").register(meterRegistry);
+        Gauge.builder("rack.reconcile.days", this, ServiceRackReconciler::daysChecked).tag("state", "checked").register(meterRegistry);
+        Gauge.builder("rack.reconcile.days", this, ServiceRackReconciler::daysRepaired).tag("state", "repaired").register(meterRegistry);
+        Gauge.builder("rack.reconcile.days", this, ServiceRackReconciler::daysTotal).tag("state", "total").register(meterRegistry);
+        Gauge.builder("rack.reconcile.running", running, flag -> flag.get() ? 1 : 0).register(meterRegistry);
+    }
+
+    //------------------------------------------------------------
+
+    /**
+     * Método para iniciar la reconciliación en segundo plano
+     * @param from fecha inicial (incluida); si es null, la primera fecha con reservas
+     * @param to fecha final (excluida); si es null, el día siguiente a la última fecha con reservas
+     * @return false si ya hay una reconciliación en curso
+     */
+    public boolean start(LocalDate from, LocalDate to) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            // Las filas del rack vienen de reservas, así que el rango de fechas de las reservas las cubre
+            LocalDate first = from != null ? from : repoBooking.findFirstBookingDate();
+            LocalDate lastBookingDate = to == null ? repoBooking.findLastBookingDate() : null;
+            LocalDate last = to != null ? to : (lastBookingDate != null ? lastBookingDate.plusDays(1) : null);
+            if (first == null || last == null) {
+                first = LocalDate.now();
+                last = first;
+            }
+            reset(first, last);
+            LocalDate runFrom = first;
+            LocalDate runTo = last;
+            executor.execute(() -> run(runFrom, runTo));
+            return true;
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Método para reconciliar todo el rango de reservas según el cron configurado (desactivado por defecto)
+     */
+    @Scheduled(cron = "${rack.reconcile.cron:-}", zone = "${rack.reconcile.zone:America/Santiago}")
+    public void scheduledReconcile() {
+        if (!start(null, null)) {
+            System.out.println("Reconciliación del rack omitida: ya hay una en curso");
+        }
+    }
+
+    /**
+     * Método para obtener el avance de la reconciliación actual o de la última
+     * @return avance
+     */
+    public synchronized RackReconcileStatusDTO status() {
+        return new RackReconcileStatusDTO(running.get(), from, to, checkedUntil, daysChecked, daysRepaired,
+                upserts, deletes, startedAt, finishedAt, lastError);
+    }
+
+    //------------------------------------------------------------
+
+    private void run(LocalDate runFrom, LocalDate runTo) {
+        try {
+            LocalDate chunkStart = runFrom;
+            while (chunkStart.isBefore(runTo)) {
+                LocalDate chunkEnd = chunkStart.plusDays(chunkDays).isBefore(runTo) ? chunkStart.plusDays(chunkDays) : runTo;
+                int repaired = reconcileChunk(chunkStart, chunkEnd);
+                progress(chunkEnd, ChronoUnit.DAYS.between(chunkStart, chunkEnd), repaired);
+                chunkStart = chunkEnd;
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                lastError = e.getMessage();
+            }
+            System.out.println("Reconciliación del rack interrumpida: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                finishedAt = LocalDateTime.now();
+            }
+            running.set(false);
+        }
+    }
+
+    // Devuelve la cantidad de días que se corrigieron en el tramo [chunkStart, chunkEnd)
+    private int reconcileChunk(LocalDate chunkStart, LocalDate chunkEnd) {
+        Map<LocalDate, String> expected = new HashMap<>();
+        for (Object[] row : repoBooking.rackDigestByDateRange(chunkStart, chunkEnd)) {
+            expected.put(LocalDate.parse((String) row[0]), (String) row[2]);
+        }
+        Map<LocalDate, String> actual = new HashMap<>();
+        RackDayDigestDTO[] rackDigest = restTemplate.getForObject("http://ms-rack/rack/digest?from={from}&to={to}",
+                RackDayDigestDTO[].class, chunkStart, chunkEnd);
+        if (rackDigest != null) {
+            for (RackDayDigestDTO day : rackDigest) {
+                actual.put(day.getBookingDate(), day.getHash());
+            }
+        }
+
+        Set<LocalDate> differing = new TreeSet<>();
+        for (LocalDate date : expected.keySet()) {
+            if (!Objects.equals(expected.get(date), actual.get(date))) {
+                differing.add(date);
+            }
+        }
+        for (LocalDate date : actual.keySet()) {
+            if (!expected.containsKey(date)) {
+                differing.add(date);
+            }
+        }
+        if (differing.isEmpty()) {
+            return 0;
+        }
+
+        String dates = differing.stream().map(LocalDate::toString).collect(Collectors.joining(","));
+        RackChangeDTO[] rackRows = restTemplate.getForObject("http://ms-rack/rack/days?dates={dates}", RackChangeDTO[].class, dates);
+        transactionTemplate.executeWithoutResult(status -> repair(differing, rackRows != null ? rackRows : new RackChangeDTO[0]));
+        return differing.size();
+    }
+
+    // Las correcciones quedan en la bandeja de salida en la misma transacción en que se leen las reservas.
+    // Las reservas se leen bloqueadas (FOR SHARE): una cancelación concurrente o ya se ve aquí, o escribe su
+    // borrado después de esta transacción y el relay lo aplica después de estas correcciones
+    private void repair(Set<LocalDate> differing, RackChangeDTO[] rackRows) {
+        Map<Long, RackChangeDTO> inRack = new HashMap<>();
+        for (RackChangeDTO row : rackRows) {
+            inRack.put(row.getId(), row);
+        }
+
+        long repairUpserts = 0;
+        long repairDeletes = 0;
+        for (EntityBooking booking : repoBooking.findConfirmedByBookingDatesForShare(differing)) {
+            RackChangeDTO current = inRack.remove(booking.getId());
+            if (current == null || !sameRow(booking, current)) {
+                serviceRackOutbox.upsert(booking);
+                repairUpserts++;
+            }
+        }
+
+        // Una fila que sobra puede ser de una reserva confirmada en un día de otro tramo: se reescribe
+        // con los datos de la reserva en vez de borrarla
+        if (!inRack.isEmpty()) {
+            for (EntityBooking booking : repoBooking.findAllByIdForShare(inRack.keySet())) {
+                if (STATUS_CONFIRMADA.equals(booking.getBookingStatus())) {
+                    inRack.remove(booking.getId());
+                    serviceRackOutbox.upsert(booking);
+                    repairUpserts++;
+                }
+            }
+            for (Long id : inRack.keySet()) {
+                serviceRackOutbox.delete(id);
+                repairDeletes++;
+            }
+        }
+
+        upsertCounter.increment(repairUpserts);
+        deleteCounter.increment(repairDeletes);
+        synchronized (this) {
+            upserts += repairUpserts;
+            deletes += repairDeletes;
+        }
+    }
+
+    private boolean sameRow(EntityBooking booking, RackChangeDTO row) {
+        String clientName = booking.getParticipants().isEmpty() ? null : booking.getParticipants().get(0).getClientName();
+        return Objects.equals(booking.getBookingDate(), row.getBookingDate())
+                && Objects.equals(booking.getBookingTime(), row.getBookingTime())
+                && Objects.equals(booking.getBookingTimeEnd(), row.getBookingTimeEnd())
+                && Objects.equals(booking.getBookingStatus(), row.getBookingStatus())
+                && Objects.equals(clientName, row.getClientName());
+    }
+
+    private synchronized void reset(LocalDate runFrom, LocalDate runTo) {
+        from = runFrom;
+        to = runTo;
+        checkedUntil = runFrom;
+        daysChecked = 0;
+        daysRepaired = 0;
+        upserts = 0;
+        deletes = 0;
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        lastError = null;
+    }
+
+    private synchronized void progress(LocalDate until, long days, int repaired) {
+        checkedUntil = until;
+        daysChecked += days;
+        daysRepaired += repaired;
+    }
+
+    private synchronized long daysChecked() {
+        return daysChecked;
+    }
+
+    private synchronized long daysRepaired() {
+        return daysRepaired;
+    }
+
+    private synchronized long daysTotal() {
+        return from == null ? 0 : ChronoUnit.DAYS.between(from, to);
+    }
+}
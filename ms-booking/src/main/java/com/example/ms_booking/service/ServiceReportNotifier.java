@@ -0,0 +1,60 @@
+package com.example.ms_booking.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Aviso a ms-reports de que cambiaron los ingresos confirmados, para que vacíe su caché.
+ * El aviso se envía después del commit, en segundo plano y agrupando los cambios que llegan
+ * mientras hay uno pendiente. Si falla, ms-reports igual descarta sus entradas por TTL.
+ */
+@Service
+public class ServiceReportNotifier {
+
+    private final RestTemplate restTemplate;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "report-notifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+
+    public ServiceReportNotifier(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * Método para avisar a ms-reports cuando la transacción actual se confirme
+     */
+    public void revenueChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sendInBackground();
+                }
+            });
+        } else {
+            sendInBackground();
+        }
+    }
+
+    private void sendInBackground() {
+        if (pending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                pending.set(false);
+                try {
+                    restTemplate.postForObject("http://ms-reports/reports/cache/invalidate", null, Void.class);
+                } catch (RuntimeException e) {
+                    System.out.println("No se pudo avisar a ms-reports: " + e.getMessage());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.dto.RevenueCellDTO;
+import com.example.ms_booking.entity.EntityBooking;
+import com.example.ms_booking.repository.RepoRevenueRollup;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Ingresos de las reservas confirmadas acumulados por año-mes, vueltas o tiempo máximo y tramo
+ * de integrantes. Se actualiza dentro de la misma transacción que confirma o cancela una reserva,
+ * de modo que los reportes leen una celda por combinación en vez de recorrer todas las reservas.
+ */
+@Service
+public class ServiceRevenueRollup {
+
+    private static final String STATUS_CONFIRMADA = "confirmada";
+
+    private final RepoRevenueRollup repoRevenueRollup;
+    private final ServiceReportNotifier serviceReportNotifier;
+
+    public ServiceRevenueRollup(RepoRevenueRollup repoRevenueRollup, ServiceReportNotifier serviceReportNotifier) {
+        this.repoRevenueRollup = repoRevenueRollup;
+        this.serviceReportNotifier = serviceReportNotifier;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void buildOnStartup() {
+        if (repoRevenueRollup.count() == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Método para sumar una reserva recién confirmada a los ingresos acumulados
+     * @param booking reserva confirmada
+     */
+    @Transactional
+    public void addConfirmed(EntityBooking booking) {
+        applyDelta(booking, 1);
+    }
+
+    /**
+     * Método para restar una reserva confirmada que se cancela de los ingresos acumulados
+     * @param booking reserva cancelada
+     */
+    @Transactional
+    public void removeConfirmed(EntityBooking booking) {
+        applyDelta(booking, -1);
+    }
+
+    /**
+     * Método para obtener los ingresos acumulados de un rango de meses de un año
+     * @param year año
+     * @param startMonth mes de inicio
+     * @param endMonth mes de fin
+     * @return ingresos agrupados por mes, vueltas o tiempo máximo y tramo de integrantes
+     */
+    public List<RevenueCellDTO> getRevenue(Integer year, Integer startMonth, Integer endMonth) {
+        return repoRevenueRollup.findRevenue(year, startMonth, endMonth);
+    }
+
+    /**
+     * Método para recalcular desde cero los ingresos acumulados a partir de las reservas confirmadas
+     * @return cantidad de celdas generadas
+     */
+    @Transactional
+    public int rebuild() {
+        repoRevenueRollup.lockForRebuild();
+        repoRevenueRollup.deleteAllCells();
+        int cells = repoRevenueRollup.insertFromBookings(STATUS_CONFIRMADA);
+        System.out.println("Ingresos acumulados reconstruidos: " + cells + " celdas");
+        serviceReportNotifier.revenueChanged();
+        return cells;
+    }
+
+    private void applyDelta(EntityBooking booking, int sign) {
+        if (booking.getBookingDate() == null || booking.getLapsOrMaxTimeAllowed() == null || booking.getNumOfPeople() == null) {
+            return;
+        }
+        int numOfPeople = booking.getNumOfPeople();
+        long revenue = booking.getBasePrice() != null ? (long) booking.getBasePrice() * numOfPeople : 0L;
+        repoRevenueRollup.applyDelta(
+                booking.getBookingDate().getYear(),
+                booking.getBookingDate().getMonthValue(),
+                booking.getLapsOrMaxTimeAllowed(),
+                peopleBucket(numOfPeople),
+                sign * revenue,
+                (long) sign * numOfPeople,
+                sign);
+        serviceReportNotifier.revenueChanged();
+    }
+
+    /**
+     * Método para obtener el tramo de integrantes, identificado por su límite superior.
+     * Debe coincidir con el CASE de RepoRevenueRollup.insertFromBookings.
+     */
+    static int peopleBucket(int numOfPeople) {
+        if (numOfPeople >= 1 && numOfPeople <= 2) {
+            return 2;
+        } else if (numOfPeople >= 3 && numOfPeople <= 5) {
+            return 5;
+        } else if (numOfPeople >= 6 && numOfPeople <= 10) {
+            return 10;
+        } else if (numOfPeople >= 11 && numOfPeople <= 15) {
+            return 15;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.exception.BookingConflictException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Candados por franjas (fecha y hora) para serializar sólo las reservas que pueden superponerse.
+ * Una reserva toma, en orden, los candados de cada hora que abarca, así que dos reservas de
+ * horas distintas avanzan en paralelo y no hay interbloqueos.
+ */
+@Service
+public class ServiceSlotLock {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutMs;
+
+    public ServiceSlotLock(@Value("${booking.lock.stripes:64}") int stripes,
+                           @Value("${booking.lock.timeout-ms:5000}") long timeoutMs) {
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Método para tomar los candados de un horario hasta que termine la transacción actual
+     * @param date fecha de la reserva
+     * @param start hora de inicio
+     * @param end hora de término
+     */
+    public void lockUntilCompletion(LocalDate date, LocalTime start, LocalTime end) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Los candados de horario requieren una transacción activa");
+        }
+        List<ReentrantLock> locks = lock(date, start, end);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock(locks);
+            }
+        });
+    }
+
+    /**
+     * Método para tomar los candados de un horario
+     * @param date fecha de la reserva
+     * @param start hora de inicio
+     * @param end hora de término
+     * @return candados tomados, que deben liberarse con unlock
+     */
+    public List<ReentrantLock> lock(LocalDate date, LocalTime start, LocalTime end) {
+        List<ReentrantLock> acquired = new ArrayList<>();
+        try {
+            for (int index : stripesFor(date, start, end)) {
+                ReentrantLock stripe = stripes[index];
+                if (!stripe.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new BookingConflictException("El horario está siendo reservado por otro cliente, intente nuevamente");
+                }
+                acquired.add(stripe);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unlock(acquired);
+            throw new BookingConflictException("La reserva fue interrumpida, intente nuevamente");
+        } catch (RuntimeException e) {
+            unlock(acquired);
+            throw e;
+        }
+        return acquired;
+    }
+
+    /**
+     * Método para liberar candados tomados con lock
+     * @param locks candados a liberar
+     */
+    public void unlock(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    private TreeSet<Integer> stripesFor(LocalDate date, LocalTime start, LocalTime end) {
+        int lastHour = end == null || !end.isAfter(start) ? 23 : end.minusNanos(1).getHour();
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (int hour = start.getHour(); hour <= lastHour; hour++) {
+            indexes.add(Math.floorMod(31 * date.hashCode() + hour, stripes.length));
+        }
+        return indexes;
+    }
+}
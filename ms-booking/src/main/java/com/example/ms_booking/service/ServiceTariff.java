@@ -0,0 +1,165 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.dto.TariffDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Caché local de la tarifa de ms-rates. La tarifa completa se carga de una vez y las consultas
+ * se responden desde memoria; al vencer el TTL se recarga en segundo plano y, si ms-rates no
+ * responde a tiempo, se sigue usando la última tarifa conocida. Las recargas usan su propio hilo,
+ * así no compiten con las consultas de descuentos que esperan esta misma tarifa, y las peticiones
+ * que piden una recarga mientras otra está en curso esperan esa misma.
+ */
+@Service
+public class ServiceTariff {
+
+    private final RestTemplate restTemplate;
+    private final long ttlNanos;
+    private final long loadTimeoutMs;
+    private final int maxEntries;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter refreshFailures;
+
+    private volatile Map<Integer, TariffDTO> tariff = Collections.emptyMap();
+    private volatile long loadedAt;
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tariff-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> inFlight;
+
+    public ServiceTariff(RestTemplate restTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${tariff.cache.ttl-ms:3600000}") long ttlMs,
+                         @Value("${tariff.cache.load-timeout-ms:1000}") long loadTimeoutMs,
+                         @Value("${tariff.cache.max-entries:64}") int maxEntries) {
+        this.restTemplate = restTemplate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.loadTimeoutMs = loadTimeoutMs;
+        this.maxEntries = maxEntries;
+        this.hits = Counter.builder("tariff.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("tariff.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.refreshFailures = Counter.builder("tariff.cache.refresh.failures").register(meterRegistry);
+        Gauge.builder("tariff.cache.size", this, cache -> cache.tariff.size()).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        refresh();
+    }
+
+    /**
+     * Método para obtener el precio base de acuerdo a la cantidad de vueltas o tiempo máximo permitido
+     * @param lapsOrMaxTimeAllowed vueltas o tiempo máximo permitido
+     * @return precio base
+     */
+    public Integer getBasePrice(Integer lapsOrMaxTimeAllowed) {
+        return lookup(lapsOrMaxTimeAllowed).getBasePrice();
+    }
+
+    /**
+     * Método para obtener la duración de acuerdo a la cantidad de vueltas o tiempo máximo permitido
+     * @param lapsOrMaxTimeAllowed vueltas o tiempo máximo permitido
+     * @return duración en minutos
+     */
+    public Integer getDuration(Integer lapsOrMaxTimeAllowed) {
+        return lookup(lapsOrMaxTimeAllowed).getDuration();
+    }
+
+    /**
+     * Método para recargar la tarifa completa desde ms-rates.
+     * Si ms-rates falla o no responde dentro del plazo se conserva la última tarifa conocida.
+     * @return tarifa vigente después de la recarga
+     */
+    public Map<Integer, TariffDTO> refresh() {
+        Future<?> future = startReload();
+        try {
+            future.get(loadTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // La recarga sigue en segundo plano (acotada por el timeout de lectura) y otras peticiones pueden esperarla
+            refreshFailures.increment();
+        } catch (ExecutionException e) {
+            // Ya contada por la recarga
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            refreshFailures.increment();
+        }
+        return tariff;
+    }
+
+    private TariffDTO lookup(Integer lapsOrMaxTimeAllowed) {
+        TariffDTO entry = tariff.get(lapsOrMaxTimeAllowed);
+        if (entry != null) {
+            hits.increment();
+            if (System.nanoTime() - loadedAt > ttlNanos) {
+                refreshInBackground();
+            }
+            return entry;
+        }
+
+        misses.increment();
+        entry = refresh().get(lapsOrMaxTimeAllowed);
+        if (entry == null) {
+            // Valor fuera de la tarifa: se consulta directamente y no se guarda en la caché
+            entry = new TariffDTO(lapsOrMaxTimeAllowed,
+                    restTemplate.getForObject("http://ms-rates/rates/basePrice/" + lapsOrMaxTimeAllowed, Integer.class),
+                    restTemplate.getForObject("http://ms-rates/rates/duration/" + lapsOrMaxTimeAllowed, Integer.class));
+        }
+        return entry;
+    }
+
+    private void refreshInBackground() {
+        startReload();
+    }
+
+    private synchronized Future<?> startReload() {
+        if (inFlight == null || inFlight.isDone()) {
+            inFlight = refreshExecutor.submit(() -> {
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    refreshFailures.increment();
+                    throw e;
+                }
+            });
+        }
+        return inFlight;
+    }
+
+    private void reload() {
+        TariffDTO[] loaded = restTemplate.getForObject("http://ms-rates/rates/tariff", TariffDTO[].class);
+        if (loaded == null) {
+            throw new IllegalStateException("ms-rates devolvió una tarifa vacía");
+        }
+        Map<Integer, TariffDTO> snapshot = new LinkedHashMap<>();
+        for (TariffDTO entry : loaded) {
+            if (snapshot.size() >= maxEntries) {
+                break;
+            }
+            snapshot.put(entry.getLapsOrMaxTimeAllowed(), entry);
+        }
+        tariff = Collections.unmodifiableMap(snapshot);
+        loadedAt = System.nanoTime();
+    }
+}
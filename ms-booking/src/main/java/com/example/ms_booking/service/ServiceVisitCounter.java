@@ -0,0 +1,91 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.entity.EntityClient;
+import com.example.ms_booking.repository.RepoClient;
+import com.example.ms_booking.repository.RepoVisitReset;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ServiceVisitCounter {
+
+    private final RepoClient repoClient;
+    private final RepoVisitReset repoVisitReset;
+    private final ServiceClientCache serviceClientCache;
+    private final ZoneId zone;
+
+    public ServiceVisitCounter(RepoClient repoClient,
+                               RepoVisitReset repoVisitReset,
+                               ServiceClientCache serviceClientCache,
+                               @Value("${visits.reset.zone:America/Santiago}") String zone) {
+        this.repoClient = repoClient;
+        this.repoVisitReset = repoVisitReset;
+        this.serviceClientCache = serviceClientCache;
+        this.zone = ZoneId.of(zone);
+    }
+
+    /**
+     * Método para leer las visitas actuales de los clientes sin modificarlas (cotización de una reserva)
+     * @param clientsRUT RUTs de los clientes
+     * @return visitas de cada cliente, indexadas por RUT normalizado
+     */
+    public Map<String, Integer> currentVisits(Collection<String> clientsRUT) {
+        Map<String, Integer> visits = new HashMap<>();
+        if (clientsRUT.isEmpty()) {
+            return visits;
+        }
+        for (EntityClient client : repoClient.findByClientRUTIn(clientsRUT)) {
+            visits.put(ServiceClientCache.normalizeRut(client.getClientRUT()),
+                    client.getVisitsPerMonth() != null ? client.getVisitsPerMonth() : 0);
+        }
+        return visits;
+    }
+
+    /**
+     * Método para registrar una visita de cada cliente con un incremento atómico en base de datos.
+     * Dos reservas simultáneas del mismo cliente obtienen valores distintos, por lo que el tramo de
+     * descuento por visitas no se repite.
+     * @param clientsRUT RUTs de los clientes que visitan
+     * @return visitas de cada cliente antes de esta reserva, indexadas por RUT normalizado
+     */
+    @Transactional
+    public Map<String, Integer> registerVisits(Collection<String> clientsRUT) {
+        Map<String, Integer> previousVisits = new HashMap<>();
+        if (clientsRUT.isEmpty()) {
+            return previousVisits;
+        }
+        List<Object[]> rows = repoClient.incrementVisitsPerMonth(clientsRUT);
+        for (Object[] row : rows) {
+            String rut = ServiceClientCache.normalizeRut((String) row[0]);
+            previousVisits.put(rut, ((Number) row[1]).intValue() - 1);
+            serviceClientCache.invalidate(rut);
+        }
+        return previousVisits;
+    }
+
+    /**
+     * Método para reiniciar las visitas de todos los clientes al comenzar cada mes.
+     * Se ejecuta cada hora en todas las instancias, pero sólo la primera que registra el mes
+     * actual aplica el reinicio, con una única sentencia para toda la tabla. Si no hay un mes
+     * anterior registrado (primera ejecución o tabla vacía) sólo se registra el mes, porque no se
+     * sabe si las visitas acumuladas son del mes actual.
+     */
+    @Scheduled(cron = "${visits.reset.cron:0 0 * * * *}", zone = "${visits.reset.zone:America/Santiago}")
+    @Transactional
+    public void resetMonthlyVisits() {
+        String period = YearMonth.now(zone).toString();
+        if (repoVisitReset.claimPeriod(period) == 1 && repoVisitReset.existsByPeriodLessThan(period)) {
+            repoClient.resetVisitsPerMonth();
+            serviceClientCache.invalidateAll();
+        }
+    }
+}
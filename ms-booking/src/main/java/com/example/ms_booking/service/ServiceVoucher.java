@@ -1,329 +1,204 @@
 package com.example.ms_booking.service;
 
+import com.example.ms_booking.dto.VoucherDTO;
+import com.example.ms_booking.dto.VoucherLineDTO;
 import com.example.ms_booking.entity.EntityBooking;
+import com.example.ms_booking.entity.EntityBookingParticipant;
 import com.example.ms_booking.repository.RepoBooking;
-import com.itextpdf.text.*;
-import org.apache.poi.ss.usermodel.Font;
-import org.apache.tomcat.util.http.fileupload.ByteArrayOutputStream;
-import org.springframework.core.io.FileSystemResource;
+import com.itextpdf.text.DocumentException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-
-import com.itextpdf.text.pdf.PdfPCell;
-import com.itextpdf.text.pdf.PdfPTable;
-import com.itextpdf.text.pdf.PdfWriter;
-
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import org.springframework.stereotype.Service;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-
-import java.io.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Objects;
 
 @Service
 public class ServiceVoucher {
 
     private final RepoBooking repoBooking;
-    private final JavaMailSender mailSender;
+    private final ServiceVoucherRenderer serviceVoucherRenderer;
+    private final ServiceVoucherCache serviceVoucherCache;
 
-    public ServiceVoucher(RepoBooking repoBooking, JavaMailSender mailSender) {
+    public ServiceVoucher(RepoBooking repoBooking, ServiceVoucherRenderer serviceVoucherRenderer,
+                          ServiceVoucherCache serviceVoucherCache) {
         this.repoBooking = repoBooking;
-        this.mailSender = mailSender;
+        this.serviceVoucherRenderer = serviceVoucherRenderer;
+        this.serviceVoucherCache = serviceVoucherCache;
     }
 
     private static final String MESSAGE_ERROR = "Reserva no encontrada con ID: ";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    // Cambiar al modificar el diseño de los comprobantes para no entregar archivos con el diseño anterior
+    private static final String RENDER_VERSION = "1";
 
     /**
-     * Método para exportar el comprobante a Excel
+     * Método para cargar los datos del comprobante de una reserva
      * @param bookingId ID de la reserva
-     * @return ResponseEntity con el archivo Excel
+     * @return datos del comprobante
      */
-    public ResponseEntity<byte[]> exportVoucherToExcel(Long bookingId) {
-        EntityBooking booking = repoBooking.findById(bookingId)
+    public VoucherDTO loadVoucher(Long bookingId) {
+        EntityBooking booking = repoBooking.findWithParticipantsById(bookingId)
                 .orElseThrow(() -> new RuntimeException(MESSAGE_ERROR + bookingId));
-
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Comprobante");
-
-            CellStyle headerStyle = createHeaderStyle(workbook);
-            String[] columns = {
-                    "Nombre integrante", "Tarifa base", "Tipo descuento",
-                    "Monto con descuento", "IVA (%)", "Monto total con IVA"
-            };
-
-            createHeaderRow(sheet, columns, headerStyle);
-
-            String[] clientNames = booking.getClientsNames().split(",");
-            String[] discounts = booking.getDiscounts().split(",");
-            String[] totalPrices = booking.getTotalPrice().split(",");
-            String[] totalWithIva = booking.getTotalWithIva().split(",");
-            Integer totalAmount = booking.getTotalAmount();
-
-            writeDataRows(sheet, booking, clientNames, discounts, totalPrices, totalWithIva);
-
-            for (int i = 0; i < columns.length; i++) {
-                sheet.autoSizeColumn(i);
-            }
-
-            Row amountRow = sheet.createRow(booking.getNumOfPeople() + 2);
-            Cell cell = amountRow.createCell(columns.length - 1);
-            cell.setCellValue("Total Pagado");
-            cell.setCellStyle(headerStyle);
-
-            Row totalAmountRow = sheet.createRow(booking.getNumOfPeople() + 3);
-            Cell totalAmountCell = totalAmountRow.createCell(columns.length - 1);
-            totalAmountCell.setCellValue(totalAmount);
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            workbook.write(outputStream);
-
-            byte[] excelBytes = outputStream.toByteArray();
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
-            headers.setContentDispositionFormData("attachment", "Comprobante_" + booking.getId() + ".xlsx");
-
-            return ResponseEntity
-                    .ok()
-                    .headers(headers)
-                    .body(excelBytes);
-
-        } catch (IOException e) {
-            throw new IllegalArgumentException("Error al generar el archivo Excel del comprobante: " + e.getMessage());
-        }
+        return toVoucher(booking);
     }
 
-    private CellStyle createHeaderStyle(Workbook workbook) {
-        CellStyle headerStyle = workbook.createCellStyle();
-        Font headerFont = workbook.createFont();
-        headerFont.setBold(true);
-        headerStyle.setFont(headerFont);
-        headerStyle.setFillForegroundColor(IndexedColors.LIGHT_CORNFLOWER_BLUE.getIndex());
-        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        return headerStyle;
-    }
-
-    private void createHeaderRow(Sheet sheet, String[] columns, CellStyle headerStyle) {
-        Row headerRow = sheet.createRow(0);
-        for (int i = 0; i < columns.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(columns[i]);
-            cell.setCellStyle(headerStyle);
-            sheet.autoSizeColumn(i);
+    /**
+     * Método para cargar los datos de los comprobantes de todas las reservas no canceladas de un día
+     * @param date fecha de las reservas
+     * @return datos de los comprobantes, en el orden de la jornada
+     */
+    public List<VoucherDTO> loadVouchersForDay(LocalDate date) {
+        List<EntityBooking> bookings = repoBooking.findWithParticipantsByBookingDate(date);
+        List<VoucherDTO> vouchers = new ArrayList<>(bookings.size());
+        for (EntityBooking booking : bookings) {
+            vouchers.add(toVoucher(booking));
         }
+        return vouchers;
     }
 
-    private void writeDataRows(Sheet sheet, EntityBooking booking, String[] clientNames, String[] discounts, String[] totalPrices, String[] totalWithIva) {
-        for (int j = 0; j < booking.getNumOfPeople(); j++) {
-            Row dataRow = sheet.createRow(j + 1);
-            dataRow.createCell(0).setCellValue(clientNames.length > j ? clientNames[j] : "");
-            dataRow.createCell(1).setCellValue(booking.getBasePrice() != null ? booking.getBasePrice() : "");
-            dataRow.createCell(2).setCellValue(discounts.length > j ? discounts[j] : "");
-            dataRow.createCell(3).setCellValue(totalPrices.length > j ? totalPrices[j] : "");
-            dataRow.createCell(4).setCellValue(booking.getIva() != null ? booking.getIva() : "");
-            dataRow.createCell(5).setCellValue(totalWithIva.length > j ? totalWithIva[j] : "");
+    private VoucherDTO toVoucher(EntityBooking booking) {
+        String[] discounts = booking.getDiscounts() != null ? booking.getDiscounts().split(",") : new String[0];
+        int[] totalPrices = booking.getTotalPrice() != null ? booking.getTotalPrice() : new int[0];
+        int[] totalWithIva = booking.getTotalWithIva() != null ? booking.getTotalWithIva() : new int[0];
+        List<EntityBookingParticipant> participants = booking.getParticipants();
+        int numOfPeople = booking.getNumOfPeople() != null ? booking.getNumOfPeople() : 0;
+
+        List<VoucherLineDTO> lines = new ArrayList<>(numOfPeople);
+        List<String> emails = new ArrayList<>(participants.size());
+        for (int j = 0; j < numOfPeople; j++) {
+            String name = participants.size() > j ? participants.get(j).getClientName() : null;
+            lines.add(new VoucherLineDTO(
+                    name != null ? name : "",
+                    discounts.length > j ? discounts[j] : "",
+                    totalPrices.length > j ? String.valueOf(totalPrices[j]) : "",
+                    totalWithIva.length > j ? String.valueOf(totalWithIva[j]) : ""));
+        }
+        for (EntityBookingParticipant participant : participants) {
+            if (participant.getClientEmail() != null && !participant.getClientEmail().isBlank()) {
+                emails.add(participant.getClientEmail());
+            }
         }
+
+        return new VoucherDTO(
+                booking.getId(),
+                booking.getBookingDate().format(DATE_FORMAT),
+                booking.getBookingTime().format(TIME_FORMAT),
+                booking.getBookingTimeEnd().format(TIME_FORMAT),
+                booking.getLapsOrMaxTimeAllowed() != null ? booking.getLapsOrMaxTimeAllowed().toString() : "",
+                booking.getNumOfPeople() != null ? booking.getNumOfPeople().toString() : "",
+                participants.isEmpty() || participants.get(0).getClientName() == null ? "" : participants.get(0).getClientName(),
+                booking.getBasePrice() != null ? String.valueOf(booking.getBasePrice()) : "",
+                booking.getIva() != null ? String.valueOf(booking.getIva()) : "",
+                booking.getTotalAmount(),
+                lines,
+                emails);
     }
 
     /**
-     * Método para exportar el comprobante a PDF
-     * @return ResponseEntity con el archivo PDF
+     * Método para exportar el comprobante a Excel
+     * @param bookingId ID de la reserva
+     * @return ResponseEntity con el archivo Excel
      */
-    public ResponseEntity<byte[]> convertExcelToPdf(Long bookingId) {
-        EntityBooking booking = repoBooking.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException(MESSAGE_ERROR + bookingId));
-
-        Long id = booking.getId();
-        String bookingDate = booking.getBookingDate().format(DateTimeFormatter.ofPattern("dd-MM-yyyy"));
-        String bookingTime = booking.getBookingTime().format(DateTimeFormatter.ofPattern("HH:mm"));
-        String bookingTimeEnd = booking.getBookingTimeEnd().format(DateTimeFormatter.ofPattern("HH:mm"));
-        String lapsOrMaxTimeAllowed = booking.getLapsOrMaxTimeAllowed() != null ? booking.getLapsOrMaxTimeAllowed().toString() : "";
-        String numOfPeople = booking.getNumOfPeople() != null ? booking.getNumOfPeople().toString() : "";
-        String[] clientsNames = booking.getClientsNames().split(",");
-        String totalAmount = booking.getTotalAmount() != null ? booking.getTotalAmount().toString() : "";
-
-        ResponseEntity<byte[]> excelResponse = exportVoucherToExcel(bookingId);
-
-        try (InputStream is = new ByteArrayInputStream(Objects.requireNonNull(excelResponse.getBody()));
-             Workbook workbook = new XSSFWorkbook(is);
-             ByteArrayOutputStream pdfOutputStream = new ByteArrayOutputStream()) {
-
-            Sheet sheet = workbook.getSheetAt(0);
-
-            Document document = new Document();
-            PdfWriter.getInstance(document, pdfOutputStream);
-            document.open();
-            document.add(new Paragraph("Comprobante de Reserva y Pago - KartingRM", FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16)));
-
-            // Se agregan los datos de la reserva como párrafos antes de la tabla
-            document.add(new Paragraph("Código de la reserva: " + id));
-            document.add(new Paragraph("Fecha de la reserva: " + bookingDate));
-            document.add(new Paragraph("Hora de la reserva: " + bookingTime));
-            document.add(new Paragraph("Hora de fin de la reserva: " + bookingTimeEnd));
-            document.add(new Paragraph("Vueltas o tiempo reservado: " + lapsOrMaxTimeAllowed));
-            document.add(new Paragraph("Personas incluidas: " + numOfPeople));
-            document.add(new Paragraph("Cliente que realizó la reserva: " + clientsNames[0]));
-
-            // Se agrega un espacio antes de la tabla
-            document.add(new Paragraph("\n"));
-
-            // Se extrae la primera fila como encabezado
-            Row headerRow = sheet.getRow(0);
-            List<String> headers = new ArrayList<>();
-            for (Cell cell : headerRow) {
-                headers.add(getCellValueAsString(cell));
-            }
-
-            // Se crea una tabla con el número de columnas del encabezado
-            PdfPTable pdfTable = new PdfPTable(headerRow.getLastCellNum());
-            pdfTable.setWidthPercentage(100);
-
-            // Se añaden los encabezados a la tabla
-            for (String header : headers) {
-                PdfPCell headerCell = new PdfPCell(new Phrase(header));
-                headerCell.setBackgroundColor(new BaseColor(230, 230, 250)); // Color de fondo para los encabezados
-                headerCell.setHorizontalAlignment(Element.ALIGN_CENTER); // Alinear texto al centro
-                headerCell.setPadding(8); // Añadir padding
-                pdfTable.addCell(headerCell);
-            }
-
-            // Se añaden las filas de datos a la tabla
-            for (int rowIndex = 1; rowIndex <= sheet.getLastRowNum(); rowIndex++) { // Omite la fila de encabezado
-                Row row = sheet.getRow(rowIndex);
-
-                if (row == null) continue;
-
-                for (Cell cell : row) {
-                    String value = getCellValueAsString(cell);
-                    PdfPCell pdfCell = new PdfPCell(new Phrase(value));
-                    pdfCell.setHorizontalAlignment(Element.ALIGN_CENTER); // Alinear texto al centro
-                    pdfCell.setPadding(8); // Añadir padding
-                    pdfTable.addCell(pdfCell);
-                }
-            }
-
-            // Se añade la tabla al documento
-            document.add(pdfTable);
-            // Se añade el precio total al final del documento
-            document.add(new Paragraph("Total Pagado: $" + totalAmount));
-            document.close();
-
-            byte[] pdfBytes = pdfOutputStream.toByteArray();
-
-            HttpHeaders headersHttp = new HttpHeaders();
-            headersHttp.setContentType(MediaType.APPLICATION_PDF);
-            headersHttp.setContentDispositionFormData("attachment", "Comprobante_" + bookingId + ".pdf");
+    public ResponseEntity<byte[]> exportVoucherToExcel(Long bookingId) {
+        VoucherDTO voucher = loadVoucher(bookingId);
+        byte[] excelBytes = renderXlsx(voucher);
 
-            return ResponseEntity
-                    .ok()
-                    .headers(headersHttp)
-                    .body(pdfBytes);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+        headers.setContentDispositionFormData("attachment", "Comprobante_" + bookingId + ".xlsx");
 
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Error al convertir Excel a PDF: " + e.getMessage());
-        }
+        return ResponseEntity
+                .ok()
+                .headers(headers)
+                .body(excelBytes);
     }
 
     /**
-     * Método para obtener el valor de una celda como String
-     * @param cell Celda
-     * @return Valor de la celda como String
+     * Método para generar el comprobante en Excel a partir de datos ya cargados
+     * @param voucher datos del comprobante
+     * @return bytes del archivo xlsx
      */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) return "";
-        return switch (cell.getCellType()) {
-            case STRING -> cell.getStringCellValue();
-            case NUMERIC -> DateUtil.isCellDateFormatted(cell)
-                    ? cell.getDateCellValue().toString()
-                    : String.valueOf(cell.getNumericCellValue());
-            case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
-            case FORMULA -> cell.getCellFormula();
-            default -> "";
-        };
+    public byte[] renderXlsx(VoucherDTO voucher) {
+        return serviceVoucherCache.get(voucher.getBookingId(), contentHash(voucher), "xlsx", () -> {
+            try {
+                return serviceVoucherRenderer.renderXlsx(voucher);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Error al generar el archivo Excel del comprobante: " + e.getMessage());
+            }
+        });
     }
 
     /**
-     * Método para enviar un pdf por correo
+     * Método para exportar el comprobante a PDF
      * @param bookingId ID de la reserva
+     * @return ResponseEntity con el archivo PDF
      */
-    public void sendVoucherByEmail(Long bookingId) {
-        EntityBooking booking = repoBooking.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException(MESSAGE_ERROR + bookingId));
-
-        String[] clientsEmails = booking.getClientsEmails().split(",");
+    public ResponseEntity<byte[]> exportVoucherToPdf(Long bookingId) {
+        byte[] pdfBytes = renderPdf(loadVoucher(bookingId));
 
-        ResponseEntity<byte[]> pdfResponse = convertExcelToPdf(bookingId);
-        byte[] pdfBytes = pdfResponse.getBody();
-
-        if (pdfBytes == null) {
-            throw new IllegalArgumentException("No se pudo generar el comprobante en PDF.");
-        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", "Comprobante_" + bookingId + ".pdf");
 
-        try {
-            // Guardar el PDF en un archivo temporal
-            File tempFile = File.createTempFile("voucher_" + bookingId, ".pdf");
-            try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-                fos.write(pdfBytes);
-            }
+        return ResponseEntity
+                .ok()
+                .headers(headers)
+                .body(pdfBytes);
+    }
 
-            for (String email : clientsEmails) {
-                // Enviar el correo con el archivo adjunto
-                sendMessageWithAttachment(
-                        email,
-                        "Comprobante de Reserva - KartingRM",
-                        "Hola, adjunto encontrarás el comprobante de tu reserva.",
-                        tempFile.getAbsolutePath()
-                );
+    /**
+     * Método para generar el comprobante en PDF a partir de datos ya cargados
+     * @param voucher datos del comprobante
+     * @return bytes del archivo pdf
+     */
+    public byte[] renderPdf(VoucherDTO voucher) {
+        return serviceVoucherCache.get(voucher.getBookingId(), contentHash(voucher), "pdf", () -> {
+            try {
+                return serviceVoucherRenderer.renderPdf(voucher);
+            } catch (DocumentException e) {
+                throw new IllegalArgumentException("Error al generar el PDF del comprobante: " + e.getMessage());
             }
-
-            // Eliminar el archivo temporal después de enviar
-            tempFile.deleteOnExit();
-
-        } catch (IOException e) {
-            throw new IllegalArgumentException("Error al guardar el PDF temporalmente: " + e.getMessage(), e);
-        }
+        });
     }
 
     /**
-     * Método para enviar un correo con un archivo adjunto
-     * @param to destinatario
-     * @param subject asunto
-     * @param text cuerpo del mensaje
-     * @param pathToAttachment ruta del archivo adjunto
+     * Hash de todo lo que aparece en el comprobante: si cambia cualquier dato de la reserva que
+     * se muestra, cambia la clave en la caché.
      */
-    public void sendMessageWithAttachment(String to,
-                                          String subject,
-                                          String text,
-                                          String pathToAttachment) {
-
-        // Crear el mensaje
+    private String contentHash(VoucherDTO voucher) {
+        StringBuilder content = new StringBuilder(256)
+                .append(RENDER_VERSION).append('\u0000')
+                .append(voucher.getBookingId()).append('\u0000')
+                .append(voucher.getBookingDate()).append('\u0000')
+                .append(voucher.getBookingTime()).append('\u0000')
+                .append(voucher.getBookingTimeEnd()).append('\u0000')
+                .append(voucher.getLapsOrMaxTimeAllowed()).append('\u0000')
+                .append(voucher.getNumOfPeople()).append('\u0000')
+                .append(voucher.getOwnerName()).append('\u0000')
+                .append(voucher.getBasePrice()).append('\u0000')
+                .append(voucher.getIva()).append('\u0000')
+                .append(voucher.getTotalAmount());
+        for (VoucherLineDTO line : voucher.getLines()) {
+            content.append('\u0000').append(line.getClientName())
+                    .append('\u0000').append(line.getDiscount())
+                    .append('\u0000').append(line.getPrice())
+                    .append('\u0000').append(line.getPriceWithIva());
+        }
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-
-            helper.setFrom("unique.bussiness.exp@gmail.com");
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(text);
-
-            FileSystemResource file = new FileSystemResource(new File(pathToAttachment));
-            String filename = file.getFilename();
-            if (filename != null) {
-                helper.addAttachment(filename, file);
-            }
-
-            mailSender.send(message);
-        } catch (MessagingException e) {
-            throw new IllegalArgumentException("Error sending email: " + e.getMessage(), e);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
         }
     }
 }
@@ -0,0 +1,241 @@
+package com.example.ms_booking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Caché de comprobantes ya generados (Excel y PDF). La clave incluye un hash del contenido del
+ * comprobante, así un cambio en la reserva nunca entrega un archivo antiguo. Hay dos niveles con
+ * expulsión LRU por tamaño: memoria y disco (los archivos se leen mapeados en memoria). Cuando
+ * una reserva cambia se eliminan sus comprobantes de ambos niveles.
+ */
+@Service
+public class ServiceVoucherCache {
+
+    private final long memoryMaxBytes;
+    private final long diskMaxBytes;
+    private final Path directory;
+    private final boolean diskEnabled;
+
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final Counter memoryHits;
+    private final Counter diskHits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public ServiceVoucherCache(MeterRegistry meterRegistry,
+                               @Value("${voucher.cache.dir:${java.io.tmpdir}/ms-booking-vouchers}") String directory,
+                               @Value("${voucher.cache.memory-max-bytes:33554432}") long memoryMaxBytes,
+                               @Value("${voucher.cache.disk-max-bytes:536870912}") long diskMaxBytes) {
+        this.memoryMaxBytes = memoryMaxBytes;
+        this.diskMaxBytes = diskMaxBytes;
+        this.directory = Path.of(directory);
+        this.diskEnabled = diskMaxBytes > 0 && prepareDirectory(this.directory);
+
+        this.memoryHits = Counter.builder("voucher.cache.requests").tag("result", "hit").tag("tier", "memory").register(meterRegistry);
+        this.diskHits = Counter.builder("voucher.cache.requests").tag("result", "hit").tag("tier", "disk").register(meterRegistry);
+        this.misses = Counter.builder("voucher.cache.requests").tag("result", "miss").tag("tier", "none").register(meterRegistry);
+        this.evictions = Counter.builder("voucher.cache.evictions").register(meterRegistry);
+        Gauge.builder("voucher.cache.size.bytes", this, ServiceVoucherCache::memoryBytes).tag("tier", "memory").register(meterRegistry);
+        Gauge.builder("voucher.cache.size.bytes", this, ServiceVoucherCache::diskBytes).tag("tier", "disk").register(meterRegistry);
+    }
+
+    //------------------------------------------------------------
+
+    /**
+     * Método para obtener un comprobante desde la caché o generarlo si no está
+     * @param bookingId ID de la reserva
+     * @param contentHash hash del contenido del comprobante
+     * @param format extensión del archivo (xlsx, pdf)
+     * @param renderer generación del comprobante
+     * @return bytes del comprobante
+     */
+    public byte[] get(Long bookingId, String contentHash, String format, Supplier<byte[]> renderer) {
+        String key = bookingId + "-" + contentHash + "." + format;
+
+        synchronized (this) {
+            byte[] cached = memory.get(key);
+            if (cached != null) {
+                memoryHits.increment();
+                return cached;
+            }
+        }
+
+        byte[] fromDisk = readFromDisk(key);
+        if (fromDisk != null) {
+            diskHits.increment();
+            putInMemory(key, fromDisk);
+            return fromDisk;
+        }
+
+        misses.increment();
+        byte[] rendered = renderer.get();
+        putInMemory(key, rendered);
+        writeToDisk(key, rendered);
+        return rendered;
+    }
+
+    /**
+     * Método para eliminar los comprobantes de una reserva (se llama cuando la reserva cambia)
+     * @param bookingId ID de la reserva
+     */
+    public void evict(Long bookingId) {
+        if (bookingId == null) {
+            return;
+        }
+        String prefix = bookingId + "-";
+        List<String> files = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, byte[]>> inMemory = memory.entrySet().iterator();
+            while (inMemory.hasNext()) {
+                Map.Entry<String, byte[]> entry = inMemory.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    memoryBytes -= entry.getValue().length;
+                    inMemory.remove();
+                }
+            }
+            Iterator<Map.Entry<String, Long>> onDisk = disk.entrySet().iterator();
+            while (onDisk.hasNext()) {
+                Map.Entry<String, Long> entry = onDisk.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    diskBytes -= entry.getValue();
+                    files.add(entry.getKey());
+                    onDisk.remove();
+                }
+            }
+        }
+        deleteFiles(files);
+    }
+
+    //------------------------------------------------------------
+
+    private synchronized void putInMemory(String key, byte[] bytes) {
+        if (bytes.length > memoryMaxBytes) {
+            return;
+        }
+        byte[] previous = memory.put(key, bytes);
+        if (previous != null) {
+            memoryBytes -= previous.length;
+        }
+        memoryBytes += bytes.length;
+        Iterator<Map.Entry<String, byte[]>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+            memoryBytes -= eldest.next().getValue().length;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private byte[] readFromDisk(String key) {
+        if (!diskEnabled) {
+            return null;
+        }
+        synchronized (this) {
+            if (disk.get(key) == null) {
+                return null;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve(key), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] bytes = new byte[mapped.remaining()];
+            mapped.get(bytes);
+            return bytes;
+        } catch (NoSuchFileException e) {
+            // Se expulsó mientras se leía
+            return null;
+        } catch (IOException e) {
+            System.out.println("No se pudo leer el comprobante en caché " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Se escribe en un archivo temporal y se renombra, así nunca se lee un archivo a medio escribir
+    private void writeToDisk(String key, byte[] bytes) {
+        if (!diskEnabled || bytes.length > diskMaxBytes) {
+            return;
+        }
+        try {
+            Path temp = Files.createTempFile(directory, "voucher", ".tmp");
+            Files.write(temp, bytes);
+            Files.move(temp, directory.resolve(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("No se pudo guardar el comprobante en caché " + key + ": " + e.getMessage());
+            return;
+        }
+
+        List<String> expired = new ArrayList<>();
+        synchronized (this) {
+            Long previous = disk.put(key, (long) bytes.length);
+            if (previous != null) {
+                diskBytes -= previous;
+            }
+            diskBytes += bytes.length;
+            Iterator<Map.Entry<String, Long>> eldest = disk.entrySet().iterator();
+            while (diskBytes > diskMaxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                diskBytes -= entry.getValue();
+                expired.add(entry.getKey());
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+        deleteFiles(expired);
+    }
+
+    private void deleteFiles(List<String> keys) {
+        for (String key : keys) {
+            try {
+                Files.deleteIfExists(directory.resolve(key));
+            } catch (IOException e) {
+                System.out.println("No se pudo eliminar el comprobante en caché " + key + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // El índice del disco no se guarda, así que los archivos de una ejecución anterior se descartan
+    private static boolean prepareDirectory(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println("Caché de comprobantes sólo en memoria, no se pudo usar " + directory + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized long memoryBytes() {
+        return memoryBytes;
+    }
+
+    private synchronized long diskBytes() {
+        return diskBytes;
+    }
+}
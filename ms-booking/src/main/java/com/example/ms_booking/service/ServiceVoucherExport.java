@@ -0,0 +1,139 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.dto.VoucherDTO;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Planilla de comprobantes de un día como ZIP. Las reservas del día se leen con una consulta,
+ * los comprobantes se generan en paralelo y cada uno se escribe en la respuesta apenas está listo.
+ * Como máximo hay max-in-flight comprobantes generados esperando ser escritos, así la memoria no
+ * depende de la cantidad de reservas del día.
+ */
+@Service
+public class ServiceVoucherExport {
+
+    private final ServiceVoucher serviceVoucher;
+    private final ExecutorService renderExecutor;
+    private final int maxInFlight;
+
+    public ServiceVoucherExport(ServiceVoucher serviceVoucher,
+                                @Qualifier("voucherRenderExecutor") ExecutorService renderExecutor,
+                                @Value("${voucher.render.max-in-flight:16}") int maxInFlight) {
+        this.serviceVoucher = serviceVoucher;
+        this.renderExecutor = renderExecutor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    private record RenderedVoucher(VoucherDTO voucher, byte[] pdf, byte[] xlsx, String error) {
+    }
+
+    //------------------------------------------------------------
+
+    /**
+     * Método para escribir en un ZIP los comprobantes de todas las reservas no canceladas de un día
+     * @param date fecha de las reservas
+     * @param pdf incluir los comprobantes en PDF
+     * @param xlsx incluir los comprobantes en Excel
+     * @param out stream de salida
+     */
+    public void writeDaySheet(LocalDate date, boolean pdf, boolean xlsx, OutputStream out) throws IOException {
+        List<VoucherDTO> vouchers = serviceVoucher.loadVouchersForDay(date);
+        CompletionService<RenderedVoucher> completion = new ExecutorCompletionService<>(renderExecutor);
+        // Sólo los que aún no se escriben: un Future terminado retiene los bytes del comprobante
+        Set<Future<RenderedVoucher>> inFlight = new HashSet<>();
+        List<String> failures = new ArrayList<>();
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // Los PDF y xlsx ya vienen comprimidos; no vale la pena gastar CPU en comprimirlos más
+        zip.setLevel(Deflater.BEST_SPEED);
+        try {
+            Iterator<VoucherDTO> pending = vouchers.iterator();
+            int written = 0;
+            while (written < vouchers.size()) {
+                while (pending.hasNext() && inFlight.size() < maxInFlight) {
+                    VoucherDTO voucher = pending.next();
+                    inFlight.add(completion.submit(() -> render(voucher, pdf, xlsx)));
+                }
+
+                Future<RenderedVoucher> done = completion.take();
+                inFlight.remove(done);
+                RenderedVoucher rendered = done.get();
+                written++;
+                if (rendered.error() != null) {
+                    failures.add("Reserva " + rendered.voucher().getBookingId() + ": " + rendered.error());
+                    continue;
+                }
+                String name = entryName(rendered.voucher());
+                if (rendered.pdf() != null) {
+                    writeEntry(zip, name + ".pdf", rendered.pdf());
+                }
+                if (rendered.xlsx() != null) {
+                    writeEntry(zip, name + ".xlsx", rendered.xlsx());
+                }
+                zip.flush();
+            }
+
+            if (!failures.isEmpty()) {
+                writeEntry(zip, "errores.txt", String.join("\n", failures).getBytes(StandardCharsets.UTF_8));
+            }
+            zip.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Exportación de comprobantes interrumpida");
+        } catch (ExecutionException e) {
+            // render() captura sus errores, así que esto no debería ocurrir
+            throw new IOException("Error al generar los comprobantes del día " + date, e.getCause());
+        } finally {
+            // Si el cliente se desconecta no se siguen generando los comprobantes restantes
+            for (Future<RenderedVoucher> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    //------------------------------------------------------------
+
+    private RenderedVoucher render(VoucherDTO voucher, boolean pdf, boolean xlsx) {
+        try {
+            return new RenderedVoucher(voucher,
+                    pdf ? serviceVoucher.renderPdf(voucher) : null,
+                    xlsx ? serviceVoucher.renderXlsx(voucher) : null,
+                    null);
+        } catch (RuntimeException e) {
+            System.out.println("No se pudo generar el comprobante de la reserva " + voucher.getBookingId() + ": " + e.getMessage());
+            return new RenderedVoucher(voucher, null, null, e.getMessage());
+        }
+    }
+
+    // Ordenables por hora en el ZIP: 14-30_Comprobante_125
+    private String entryName(VoucherDTO voucher) {
+        return voucher.getBookingTime().replace(':', '-') + "_Comprobante_" + voucher.getBookingId();
+    }
+
+    private void writeEntry(ZipOutputStream zip, String name, byte[] bytes) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(bytes);
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.dto.VoucherDTO;
+import com.example.ms_booking.entity.EntityBooking;
+import com.example.ms_booking.entity.EntityBookingParticipant;
+import com.example.ms_booking.entity.EntityVoucherEmail;
+import com.example.ms_booking.exception.BookingValidationException;
+import com.example.ms_booking.repository.RepoBooking;
+import com.example.ms_booking.repository.RepoVoucherEmail;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Envío de comprobantes por correo a través de una bandeja de salida en la base de datos.
+ * La petición sólo registra un correo por integrante; los workers toman lotes pendientes,
+ * generan el PDF una vez por reserva y envían todos sus correos por una misma conexión SMTP.
+ * Los envíos fallidos se reintentan con espera exponencial hasta max-attempts.
+ */
+@Service
+public class ServiceVoucherMailer {
+
+    static final String STATUS_PENDIENTE = "pendiente";
+    static final String STATUS_FALLIDO = "fallido";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final RepoVoucherEmail repoVoucherEmail;
+    private final RepoBooking repoBooking;
+    private final ServiceVoucher serviceVoucher;
+    private final JavaMailSender mailSender;
+    private final ExecutorService mailExecutor;
+    private final String from;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final long leaseMs;
+
+    // Despacho inmediato tras registrar correos, sin esperar la próxima revisión programada
+    private final ExecutorService wakeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "voucher-mail-wake");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean wakePending = new AtomicBoolean(false);
+
+    public ServiceVoucherMailer(RepoVoucherEmail repoVoucherEmail, RepoBooking repoBooking,
+                                ServiceVoucher serviceVoucher, JavaMailSender mailSender,
+                                @Qualifier("voucherMailExecutor") ExecutorService mailExecutor,
+                                @Value("${voucher.mail.from:unique.bussiness.exp@gmail.com}") String from,
+                                @Value("${voucher.mail.batch-size:50}") int batchSize,
+                                @Value("${voucher.mail.max-attempts:5}") int maxAttempts,
+                                @Value("${voucher.mail.backoff-ms:30000}") long backoffMs,
+                                @Value("${voucher.mail.max-backoff-ms:1800000}") long maxBackoffMs,
+                                @Value("${voucher.mail.lease-ms:300000}") long leaseMs) {
+        this.repoVoucherEmail = repoVoucherEmail;
+        this.repoBooking = repoBooking;
+        this.serviceVoucher = serviceVoucher;
+        this.mailSender = mailSender;
+        this.mailExecutor = mailExecutor;
+        this.from = from;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.leaseMs = leaseMs;
+    }
+
+    //------------------------------------------------------------
+
+    /**
+     * Método para dejar en la bandeja de salida el comprobante de una reserva
+     * @param bookingId ID de la reserva
+     * @return cantidad de correos registrados (uno por correo distinto de los integrantes)
+     */
+    @Transactional
+    public int enqueue(Long bookingId) {
+        EntityBooking booking = repoBooking.findWithParticipantsById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Reserva no encontrada con ID: " + bookingId));
+
+        Set<String> recipients = new LinkedHashSet<>();
+        for (EntityBookingParticipant participant : booking.getParticipants()) {
+            String email = participant.getClientEmail();
+            if (email != null && !email.isBlank()) {
+                recipients.add(email.trim());
+            }
+        }
+        if (recipients.isEmpty()) {
+            throw new BookingValidationException("La reserva " + bookingId + " no tiene correos de integrantes");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<EntityVoucherEmail> emails = new ArrayList<>(recipients.size());
+        for (String recipient : recipients) {
+            emails.add(new EntityVoucherEmail(null, bookingId, recipient, STATUS_PENDIENTE, 0, now, null, null, now, null));
+        }
+        repoVoucherEmail.saveAll(emails);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
+        }
+        return recipients.size();
+    }
+
+    /**
+     * Método para enviar los correos pendientes cuyo intento ya venció
+     */
+    @Scheduled(fixedDelayString = "${voucher.mail.poll-ms:5000}")
+    public void dispatchDue() {
+        int claimed;
+        do {
+            claimed = dispatchBatch();
+        } while (claimed == batchSize && !Thread.currentThread().isInterrupted());
+    }
+
+    //------------------------------------------------------------
+
+    private void wake() {
+        if (wakePending.compareAndSet(false, true)) {
+            wakeExecutor.execute(() -> {
+                wakePending.set(false);
+                try {
+                    dispatchDue();
+                } catch (RuntimeException e) {
+                    System.out.println("No se pudo despachar la bandeja de comprobantes: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Toma un lote de correos vencidos y los envía agrupados por reserva en el pool de correo.
+     * @return cantidad de correos tomados
+     */
+    int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        String claimToken = UUID.randomUUID().toString();
+        int claimed = repoVoucherEmail.claimBatch(now, now.plus(Duration.ofMillis(leaseMs)), claimToken, batchSize);
+        if (claimed == 0) {
+            return 0;
+        }
+
+        Map<Long, List<EntityVoucherEmail>> byBooking = new LinkedHashMap<>();
+        for (EntityVoucherEmail email : repoVoucherEmail.findByClaimToken(claimToken)) {
+            // Retomado tras vencer su plazo demasiadas veces: probablemente bota al worker, no se vuelve a enviar
+            if (email.getAttempts() >= maxAttempts) {
+                System.out.println("Comprobante de la reserva " + email.getBookingId() + " a " + email.getRecipient()
+                        + " descartado tras " + email.getAttempts() + " intentos: " + email.getLastError());
+                repoVoucherEmail.markFailed(email.getId(), STATUS_FALLIDO, email.getAttempts(), now, email.getLastError());
+                continue;
+            }
+            byBooking.computeIfAbsent(email.getBookingId(), id -> new ArrayList<>()).add(email);
+        }
+
+        List<Future<?>> sends = new ArrayList<>(byBooking.size());
+        for (Map.Entry<Long, List<EntityVoucherEmail>> entry : byBooking.entrySet()) {
+            sends.add(mailExecutor.submit(() -> sendBooking(entry.getKey(), entry.getValue())));
+        }
+        for (Future<?> send : sends) {
+            try {
+                send.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // Los correos quedan "enviando" y se vuelven a tomar al vencer el plazo
+                System.out.println("Error inesperado al enviar comprobantes: " + e.getCause());
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Envía los correos de una reserva: un PDF en memoria y una sola conexión SMTP para todos.
+     */
+    void sendBooking(Long bookingId, List<EntityVoucherEmail> emails) {
+        MimeMessage[] messages = new MimeMessage[emails.size()];
+        try {
+            VoucherDTO voucher = serviceVoucher.loadVoucher(bookingId);
+            ByteArrayResource attachment = new ByteArrayResource(serviceVoucher.renderPdf(voucher));
+            for (int i = 0; i < messages.length; i++) {
+                messages[i] = buildMessage(emails.get(i).getRecipient(), "Comprobante_" + bookingId + ".pdf", attachment);
+            }
+        } catch (RuntimeException | MessagingException e) {
+            for (EntityVoucherEmail email : emails) {
+                retryLater(email, e);
+            }
+            return;
+        }
+
+        Map<Object, Exception> failed = Map.of();
+        try {
+            mailSender.send(messages);
+        } catch (MailSendException e) {
+            failed = e.getFailedMessages();
+            if (failed.isEmpty()) {
+                failAll(emails, e);
+                return;
+            }
+        } catch (MailException e) {
+            failAll(emails, e);
+            return;
+        }
+
+        List<Long> sentIds = new ArrayList<>(emails.size());
+        for (int i = 0; i < messages.length; i++) {
+            Exception error = failed.get(messages[i]);
+            if (error == null) {
+                sentIds.add(emails.get(i).getId());
+            } else {
+                retryLater(emails.get(i), error);
+            }
+        }
+        if (!sentIds.isEmpty()) {
+            repoVoucherEmail.markSent(sentIds, LocalDateTime.now());
+        }
+    }
+
+    private MimeMessage buildMessage(String to, String filename, ByteArrayResource attachment) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        helper.setFrom(from);
+        helper.setTo(to);
+        helper.setSubject("Comprobante de Reserva - KartingRM");
+        helper.setText("Hola, adjunto encontrarás el comprobante de tu reserva.");
+        helper.addAttachment(filename, attachment);
+        return message;
+    }
+
+    private void failAll(List<EntityVoucherEmail> emails, Exception error) {
+        for (EntityVoucherEmail email : emails) {
+            retryLater(email, error);
+        }
+    }
+
+    // Espera backoff-ms, luego el doble en cada intento, hasta max-backoff-ms
+    private void retryLater(EntityVoucherEmail email, Exception error) {
+        int attempts = email.getAttempts() + 1;
+        String message = String.valueOf(error.getMessage());
+        if (message.length() > MAX_ERROR_LENGTH) {
+            message = message.substring(0, MAX_ERROR_LENGTH);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (attempts >= maxAttempts) {
+            System.out.println("Comprobante de la reserva " + email.getBookingId() + " a " + email.getRecipient()
+                    + " descartado tras " + attempts + " intentos: " + message);
+            repoVoucherEmail.markFailed(email.getId(), STATUS_FALLIDO, attempts, now, message);
+            return;
+        }
+        long delay = Math.min(backoffMs << Math.min(attempts - 1, 20), maxBackoffMs);
+        repoVoucherEmail.markFailed(email.getId(), STATUS_PENDIENTE, attempts, now.plus(Duration.ofMillis(delay)), message);
+    }
+}
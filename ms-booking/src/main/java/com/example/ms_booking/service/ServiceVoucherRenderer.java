@@ -0,0 +1,158 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.dto.VoucherDTO;
+import com.example.ms_booking.dto.VoucherLineDTO;
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.FontFactory;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Genera los comprobantes Excel y PDF directamente desde los datos de la reserva. El diseño
+ * (columnas, anchos, fuentes y colores) se arma una sola vez y se reutiliza en cada comprobante.
+ */
+@Service
+public class ServiceVoucherRenderer {
+
+    private static final String[] COLUMNS = {
+            "Nombre integrante", "Tarifa base", "Tipo descuento",
+            "Monto con descuento", "IVA (%)", "Monto total con IVA"
+    };
+    // Anchos fijos: autoSizeColumn mide el texto de cada celda y era lo más costoso del Excel
+    private static final int[] XLSX_COLUMN_WIDTHS = {24, 12, 18, 20, 8, 20};
+    private static final float[] PDF_COLUMN_WIDTHS = {3f, 2f, 2.5f, 2.5f, 1.5f, 2.5f};
+
+    private static final Font TITLE_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16);
+    private static final Font TEXT_FONT = new Font();
+    private static final BaseColor HEADER_COLOR = new BaseColor(230, 230, 250);
+    private static final float CELL_PADDING = 8;
+    private static final int INITIAL_BUFFER = 8 * 1024;
+
+    //------------------------------------------------------------
+
+    /**
+     * Método para generar el comprobante en Excel
+     * @param voucher datos del comprobante
+     * @return bytes del archivo xlsx
+     */
+    public byte[] renderXlsx(VoucherDTO voucher) throws IOException {
+        try (Workbook workbook = new XSSFWorkbook();
+             ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER)) {
+            Sheet sheet = workbook.createSheet("Comprobante");
+            CellStyle headerStyle = createHeaderStyle(workbook);
+
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < COLUMNS.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(COLUMNS[i]);
+                cell.setCellStyle(headerStyle);
+                sheet.setColumnWidth(i, XLSX_COLUMN_WIDTHS[i] * 256);
+            }
+
+            List<VoucherLineDTO> lines = voucher.getLines();
+            for (int j = 0; j < lines.size(); j++) {
+                VoucherLineDTO line = lines.get(j);
+                Row dataRow = sheet.createRow(j + 1);
+                dataRow.createCell(0).setCellValue(line.getClientName());
+                dataRow.createCell(1).setCellValue(voucher.getBasePrice());
+                dataRow.createCell(2).setCellValue(line.getDiscount());
+                dataRow.createCell(3).setCellValue(line.getPrice());
+                dataRow.createCell(4).setCellValue(voucher.getIva());
+                dataRow.createCell(5).setCellValue(line.getPriceWithIva());
+            }
+
+            Cell amountLabel = sheet.createRow(lines.size() + 2).createCell(COLUMNS.length - 1);
+            amountLabel.setCellValue("Total Pagado");
+            amountLabel.setCellStyle(headerStyle);
+            Cell amount = sheet.createRow(lines.size() + 3).createCell(COLUMNS.length - 1);
+            if (voucher.getTotalAmount() != null) {
+                amount.setCellValue(voucher.getTotalAmount());
+            }
+
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Método para generar el comprobante en PDF
+     * @param voucher datos del comprobante
+     * @return bytes del archivo pdf
+     */
+    public byte[] renderPdf(VoucherDTO voucher) throws DocumentException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER);
+        Document document = new Document();
+        PdfWriter.getInstance(document, out);
+        document.open();
+        document.add(new Paragraph("Comprobante de Reserva y Pago - KartingRM", TITLE_FONT));
+
+        document.add(new Paragraph("Código de la reserva: " + voucher.getBookingId(), TEXT_FONT));
+        document.add(new Paragraph("Fecha de la reserva: " + voucher.getBookingDate(), TEXT_FONT));
+        document.add(new Paragraph("Hora de la reserva: " + voucher.getBookingTime(), TEXT_FONT));
+        document.add(new Paragraph("Hora de fin de la reserva: " + voucher.getBookingTimeEnd(), TEXT_FONT));
+        document.add(new Paragraph("Vueltas o tiempo reservado: " + voucher.getLapsOrMaxTimeAllowed(), TEXT_FONT));
+        document.add(new Paragraph("Personas incluidas: " + voucher.getNumOfPeople(), TEXT_FONT));
+        document.add(new Paragraph("Cliente que realizó la reserva: " + voucher.getOwnerName(), TEXT_FONT));
+        document.add(new Paragraph("\n", TEXT_FONT));
+
+        PdfPTable table = new PdfPTable(PDF_COLUMN_WIDTHS);
+        table.setWidthPercentage(100);
+        // Las celdas toman el formato de la celda por defecto de la tabla
+        PdfPCell defaultCell = table.getDefaultCell();
+        defaultCell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        defaultCell.setPadding(CELL_PADDING);
+
+        defaultCell.setBackgroundColor(HEADER_COLOR);
+        for (String column : COLUMNS) {
+            table.addCell(new Phrase(column, TEXT_FONT));
+        }
+        defaultCell.setBackgroundColor(null);
+
+        for (VoucherLineDTO line : voucher.getLines()) {
+            table.addCell(new Phrase(line.getClientName(), TEXT_FONT));
+            table.addCell(new Phrase(voucher.getBasePrice(), TEXT_FONT));
+            table.addCell(new Phrase(line.getDiscount(), TEXT_FONT));
+            table.addCell(new Phrase(line.getPrice(), TEXT_FONT));
+            table.addCell(new Phrase(voucher.getIva(), TEXT_FONT));
+            table.addCell(new Phrase(line.getPriceWithIva(), TEXT_FONT));
+        }
+
+        document.add(table);
+        String totalAmount = voucher.getTotalAmount() != null ? voucher.getTotalAmount().toString() : "";
+        document.add(new Paragraph("Total Pagado: $" + totalAmount, TEXT_FONT));
+        document.close();
+        return out.toByteArray();
+    }
+
+    //------------------------------------------------------------
+
+    private CellStyle createHeaderStyle(Workbook workbook) {
+        CellStyle headerStyle = workbook.createCellStyle();
+        org.apache.poi.ss.usermodel.Font headerFont = workbook.createFont();
+        headerFont.setBold(true);
+        headerStyle.setFont(headerFont);
+        headerStyle.setFillForegroundColor(IndexedColors.LIGHT_CORNFLOWER_BLUE.getIndex());
+        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        return headerStyle;
+    }
+}
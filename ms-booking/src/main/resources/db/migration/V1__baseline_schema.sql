@@ -0,0 +1,65 @@
+-- Esquema base de ms-booking. Es idempotente: crea lo que falta en bases nuevas y completa
+-- las bases creadas antes con ddl-auto o con deployment/ms-booking-db.sql.
+
+CREATE TABLE IF NOT EXISTS client (
+    clientrut        VARCHAR(255) NOT NULL,
+    client_birthday  VARCHAR(255),
+    client_email     VARCHAR(255),
+    client_name      VARCHAR(255),
+    visits_per_month INTEGER,
+    PRIMARY KEY (clientrut)
+);
+
+CREATE TABLE IF NOT EXISTS visit_reset (
+    period   VARCHAR(255) NOT NULL,
+    reset_at TIMESTAMP(6),
+    PRIMARY KEY (period)
+);
+
+CREATE TABLE IF NOT EXISTS booking (
+    id                       BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    booking_date             DATE,
+    booking_time             TIME(6),
+    booking_time_end         TIME(6),
+    booking_status           VARCHAR(255),
+    laps_or_max_time_allowed INTEGER,
+    num_of_people            INTEGER,
+    discounts                VARCHAR(1000),
+    total_amount             INTEGER,
+    PRIMARY KEY (id)
+);
+
+ALTER TABLE booking ALTER COLUMN discounts TYPE VARCHAR(1000);
+ALTER TABLE booking
+    ADD COLUMN IF NOT EXISTS base_price_amount           INTEGER,
+    ADD COLUMN IF NOT EXISTS iva_percent                 INTEGER,
+    ADD COLUMN IF NOT EXISTS participant_prices          BYTEA,
+    ADD COLUMN IF NOT EXISTS participant_prices_with_iva BYTEA,
+    ADD COLUMN IF NOT EXISTS version                     BIGINT DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS booking_participant (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    booking_id        BIGINT NOT NULL REFERENCES booking (id),
+    participant_order INTEGER,
+    client_rut        VARCHAR(255),
+    client_name       VARCHAR(255),
+    client_email      VARCHAR(255),
+    owner             BOOLEAN NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_participant_rut_owner ON booking_participant (client_rut, owner);
+CREATE INDEX IF NOT EXISTS idx_participant_booking ON booking_participant (booking_id);
+
+CREATE TABLE IF NOT EXISTS revenue_rollup (
+    id                       BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    rollup_year              INTEGER,
+    rollup_month             INTEGER,
+    laps_or_max_time_allowed INTEGER,
+    people_bucket            INTEGER,
+    revenue                  BIGINT,
+    participants             BIGINT,
+    bookings                 BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_revenue_rollup_cell UNIQUE (rollup_year, rollup_month, laps_or_max_time_allowed, people_bucket)
+);
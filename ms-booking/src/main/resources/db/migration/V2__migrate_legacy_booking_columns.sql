@@ -0,0 +1,32 @@
+-- Migra las columnas antiguas de booking (listas separadas por comas y montos en texto), si existen,
+-- a booking_participant y a las columnas numéricas. Sólo toca las reservas aún no migradas.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns WHERE table_name = 'booking' AND column_name = 'clientsrut') THEN
+        INSERT INTO booking_participant (booking_id, participant_order, client_rut, client_name, client_email, owner)
+        SELECT b.id, r.ord - 1, trim(r.rut), trim(n.name), trim(e.email), r.ord = 1
+        FROM booking b
+        CROSS JOIN LATERAL unnest(string_to_array(b.clientsrut, ',')) WITH ORDINALITY AS r(rut, ord)
+        LEFT JOIN LATERAL unnest(string_to_array(b.clients_names, ',')) WITH ORDINALITY AS n(name, ord) ON n.ord = r.ord
+        LEFT JOIN LATERAL unnest(string_to_array(b.clients_emails, ',')) WITH ORDINALITY AS e(email, ord) ON e.ord = r.ord
+        WHERE trim(r.rut) <> ''
+          AND NOT EXISTS (SELECT 1 FROM booking_participant p WHERE p.booking_id = b.id);
+    END IF;
+
+    -- Los montos por integrante se empaquetan con int4send, el mismo formato que PackedIntArrayConverter
+    IF EXISTS (SELECT 1 FROM information_schema.columns WHERE table_name = 'booking' AND column_name = 'base_price') THEN
+        UPDATE booking b SET
+            base_price_amount = CASE WHEN trim(b.base_price) ~ '^[0-9]+$' THEN trim(b.base_price)::int END,
+            iva_percent = CASE WHEN trim(b.iva) ~ '^[0-9]+$' THEN trim(b.iva)::int ELSE 19 END,
+            participant_prices = (
+                SELECT string_agg(int4send(trim(v)::int), ''::bytea ORDER BY ord)
+                FROM unnest(string_to_array(b.total_price, ',')) WITH ORDINALITY AS t(v, ord)
+                WHERE trim(v) ~ '^-?[0-9]+$'),
+            participant_prices_with_iva = (
+                SELECT string_agg(int4send(trim(v)::int), ''::bytea ORDER BY ord)
+                FROM unnest(string_to_array(b.total_with_iva, ',')) WITH ORDINALITY AS t(v, ord)
+                WHERE trim(v) ~ '^-?[0-9]+$')
+        WHERE b.base_price_amount IS NULL AND b.base_price IS NOT NULL;
+    END IF;
+END $$;
@@ -0,0 +1,5 @@
+-- Reportes y paginación por cursor: estado + rango de fechas; el id al final permite seguir
+-- el orden (fecha, id) desde el índice
+CREATE INDEX IF NOT EXISTS idx_booking_status_date_id ON booking (booking_status, booking_date, id);
+-- Ocupación y horarios de un día
+CREATE INDEX IF NOT EXISTS idx_booking_date_time ON booking (booking_date, booking_time);
@@ -0,0 +1,16 @@
+-- Correos de comprobante pendientes de envío (los despacha ServiceVoucherMailer)
+CREATE TABLE IF NOT EXISTS voucher_email_outbox (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    booking_id      BIGINT       NOT NULL,
+    recipient       VARCHAR(255) NOT NULL,
+    status          VARCHAR(255) NOT NULL,
+    attempts        INTEGER      NOT NULL,
+    next_attempt_at TIMESTAMP    NOT NULL,
+    claim_token     VARCHAR(255),
+    last_error      VARCHAR(1000),
+    created_at      TIMESTAMP    NOT NULL,
+    sent_at         TIMESTAMP,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_voucher_email_status_next ON voucher_email_outbox (status, next_attempt_at);
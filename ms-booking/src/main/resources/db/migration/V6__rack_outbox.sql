@@ -0,0 +1,13 @@
+-- Cambios pendientes de replicar en ms-rack (los envía ServiceRackOutbox en orden de id)
+CREATE TABLE IF NOT EXISTS rack_outbox (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    booking_id       BIGINT       NOT NULL,
+    operation        VARCHAR(255) NOT NULL,
+    booking_date     DATE,
+    booking_time     TIME(6),
+    booking_time_end TIME(6),
+    booking_status   VARCHAR(255),
+    client_name      VARCHAR(255),
+    created_at       TIMESTAMP    NOT NULL,
+    PRIMARY KEY (id)
+);
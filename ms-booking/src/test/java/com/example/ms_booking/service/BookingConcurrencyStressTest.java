@@ -0,0 +1,276 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.entity.EntityBooking;
+import com.example.ms_booking.exception.BookingConflictException;
+import com.example.ms_booking.exception.GlobalExceptionHandler;
+import com.example.ms_booking.repository.RepoBooking;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookingConcurrencyStressTest {
+
+    private static final int ROUNDS = 200;
+    private static final int CONFLICTING = 16;
+    private static final int INDEPENDENT = 8;
+
+    private final AtomicLong ids = new AtomicLong();
+    private volatile CyclicBarrier readers;
+
+    @Test
+    void concurrentReservationsNeverDoubleBookASlot() throws Exception {
+        RepoBooking repoBooking = mock(RepoBooking.class);
+        when(repoBooking.findByBookingDate(any())).thenReturn(List.of());
+        ServiceOccupancy occupancy = new ServiceOccupancy(repoBooking, 1000);
+        ServiceSlotLock slotLock = new ServiceSlotLock(64, 5000);
+        ExecutorService pool = Executors.newFixedThreadPool(CONFLICTING + INDEPENDENT);
+
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                LocalDate date = LocalDate.of(2025, 1, 1).plusDays(round);
+                AtomicInteger conflictingWins = new AtomicInteger();
+                AtomicInteger independentWins = new AtomicInteger();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+
+                // Todas se superponen con 13:00 - 13:35
+                for (int i = 0; i < CONFLICTING; i++) {
+                    LocalTime time = LocalTime.of(13, 0).plusMinutes(5L * (i % 6));
+                    futures.add(pool.submit(() -> reserve(occupancy, slotLock, start, date, time, time.plusMinutes(35), conflictingWins)));
+                }
+                // Horas distintas, ninguna se superpone con otra
+                for (int i = 0; i < INDEPENDENT; i++) {
+                    LocalTime time = LocalTime.of(14 + i, 0);
+                    futures.add(pool.submit(() -> reserve(occupancy, slotLock, start, date, time, time.plusMinutes(40), independentWins)));
+                }
+
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+
+                assertEquals(1, conflictingWins.get(), "Sólo una reserva superpuesta puede ganar el horario");
+                assertEquals(INDEPENDENT, independentWins.get(), "Las reservas sin conflicto deben avanzar todas");
+                assertFalse(occupancy.isFree(date, LocalTime.of(13, 30), 5));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void conflictingSlotsAreSerializedAndIndependentOnesRunInParallel() throws Exception {
+        ServiceSlotLock slotLock = new ServiceSlotLock(64, 5000);
+        ExecutorService pool = Executors.newFixedThreadPool(INDEPENDENT);
+        LocalDate date = LocalDate.of(2025, 3, 1);
+
+        try {
+            // Reservas superpuestas: nunca hay dos dentro de la sección protegida
+            AtomicInteger active = new AtomicInteger();
+            AtomicInteger maxActive = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < INDEPENDENT; i++) {
+                futures.add(pool.submit(() -> {
+                    List<ReentrantLock> locks = slotLock.lock(date, LocalTime.of(13, 0), LocalTime.of(13, 35));
+                    try {
+                        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        Thread.sleep(5);
+                        active.decrementAndGet();
+                    } finally {
+                        slotLock.unlock(locks);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(1, maxActive.get(), "Las reservas superpuestas deben serializarse");
+
+            // Horas distintas: todas deben tener su candado al mismo tiempo para pasar la barrera
+            CyclicBarrier allInside = new CyclicBarrier(INDEPENDENT);
+            futures.clear();
+            for (int i = 0; i < INDEPENDENT; i++) {
+                LocalTime time = LocalTime.of(14 + i, 0);
+                futures.add(pool.submit(() -> {
+                    List<ReentrantLock> locks = slotLock.lock(date, time, time.plusMinutes(40));
+                    try {
+                        allInside.await(5, TimeUnit.SECONDS);
+                    } finally {
+                        slotLock.unlock(locks);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // El UPDATE con versión real se prueba en BookingVersionConcurrencyTest; aquí sólo la respuesta 409
+    // al perdedor y que la ocupación quede como la dejó el ganador
+    @Test
+    void losingConfirmOrCancelGetsA409AndOccupancyFollowsTheWinner() throws Exception {
+        Map<Long, EntityBooking> committed = new ConcurrentHashMap<>();
+        RepoBooking repoBooking = versionedRepo(committed);
+        ServiceOccupancy occupancy = new ServiceOccupancy(repoBooking, 1000);
+        ServiceBooking serviceBooking = new ServiceBooking(repoBooking, mock(ServicePricing.class), occupancy,
+                new ServiceSlotLock(64, 5000), mock(ServiceRevenueRollup.class), mock(ServiceVoucherCache.class),
+                mock(ServiceRackOutbox.class));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                LocalDate date = LocalDate.of(2025, 6, 1).plusDays(round);
+                EntityBooking booking = new EntityBooking();
+                booking.setId(ids.incrementAndGet());
+                booking.setBookingDate(date);
+                booking.setBookingTime(LocalTime.of(15, 0));
+                booking.setBookingTimeEnd(LocalTime.of(15, 30));
+                booking.setBookingStatus("sin confirmar");
+                booking.setVersion(0L);
+                committed.put(booking.getId(), copy(booking));
+                // Ambas operaciones leen la misma versión antes de que alguna guarde
+                readers = new CyclicBarrier(2);
+
+                Future<RuntimeException> confirm = pool.submit(() -> inTransaction(() -> serviceBooking.confirmBooking(booking.getId())));
+                Future<RuntimeException> cancel = pool.submit(() -> inTransaction(() -> serviceBooking.cancelBooking(booking.getId())));
+                RuntimeException confirmError = confirm.get(10, TimeUnit.SECONDS);
+                RuntimeException cancelError = cancel.get(10, TimeUnit.SECONDS);
+
+                assertTrue(confirmError == null ^ cancelError == null, "Exactamente una operación debe ganar");
+                RuntimeException loserError = confirmError != null ? confirmError : cancelError;
+                assertTrue(loserError instanceof ObjectOptimisticLockingFailureException, "La otra debe fallar por la versión: " + loserError);
+                assertEquals(HttpStatus.CONFLICT, new GlobalExceptionHandler()
+                        .handleOptimisticLockingFailure((ObjectOptimisticLockingFailureException) loserError).getStatusCode());
+
+                EntityBooking stored = committed.get(booking.getId());
+                assertEquals(1L, stored.getVersion());
+                if (confirmError == null) {
+                    assertEquals("confirmada", stored.getBookingStatus());
+                    assertFalse(occupancy.isFree(date, LocalTime.of(15, 0), 30), "Una reserva confirmada ocupa su horario");
+                } else {
+                    assertEquals("cancelada", stored.getBookingStatus());
+                    assertTrue(occupancy.isFree(date, LocalTime.of(15, 0), 30), "Una reserva cancelada no ocupa su horario");
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    //------------------------------------------------------------
+
+    // Repositorio en memoria que imita la regla de @Version: sólo se guarda sobre la versión leída
+    private RepoBooking versionedRepo(Map<Long, EntityBooking> committed) {
+        RepoBooking repoBooking = mock(RepoBooking.class);
+        when(repoBooking.findByBookingDate(any())).thenReturn(List.of());
+        when(repoBooking.findById(anyLong())).thenAnswer(invocation -> {
+            readers.await(5, TimeUnit.SECONDS);
+            return Optional.ofNullable(committed.get(invocation.<Long>getArgument(0))).map(this::copy);
+        });
+        when(repoBooking.save(any())).thenAnswer(invocation -> {
+            EntityBooking booking = invocation.getArgument(0);
+            synchronized (committed) {
+                EntityBooking current = committed.get(booking.getId());
+                assertNotNull(current);
+                if (!Objects.equals(current.getVersion(), booking.getVersion())) {
+                    throw new ObjectOptimisticLockingFailureException(EntityBooking.class, booking.getId());
+                }
+                booking.setVersion(booking.getVersion() + 1);
+                committed.put(booking.getId(), copy(booking));
+            }
+            return booking;
+        });
+        return repoBooking;
+    }
+
+    // Ejecuta como lo haría @Transactional: después del commit o del rollback se avisan las sincronizaciones
+    private RuntimeException inTransaction(Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        RuntimeException error = null;
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        int status = error == null ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK;
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (error == null) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(status);
+        }
+        return error;
+    }
+
+    private EntityBooking copy(EntityBooking booking) {
+        EntityBooking copy = new EntityBooking();
+        copy.setId(booking.getId());
+        copy.setBookingDate(booking.getBookingDate());
+        copy.setBookingTime(booking.getBookingTime());
+        copy.setBookingTimeEnd(booking.getBookingTimeEnd());
+        copy.setBookingStatus(booking.getBookingStatus());
+        copy.setVersion(booking.getVersion());
+        return copy;
+    }
+
+    private void reserve(ServiceOccupancy occupancy, ServiceSlotLock slotLock, CountDownLatch start,
+                         LocalDate date, LocalTime time, LocalTime end, AtomicInteger wins) {
+        EntityBooking booking = new EntityBooking();
+        booking.setId(ids.incrementAndGet());
+        booking.setBookingDate(date);
+        booking.setBookingTime(time);
+        booking.setBookingTimeEnd(end);
+        booking.setBookingStatus("sin confirmar");
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        List<ReentrantLock> locks = slotLock.lock(date, time, end);
+        try {
+            occupancy.occupy(booking);
+            wins.incrementAndGet();
+        } catch (BookingConflictException e) {
+            // horario ya tomado por otra reserva
+        } finally {
+            slotLock.unlock(locks);
+        }
+    }
+}
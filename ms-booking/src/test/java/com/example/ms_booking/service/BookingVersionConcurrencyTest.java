@@ -0,0 +1,116 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.entity.EntityBooking;
+import com.example.ms_booking.repository.RepoBooking;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Confirmar y cancelar la misma reserva a la vez sobre una base de datos embebida: el UPDATE con
+ * versión de Hibernate (@Version en EntityBooking) debe dejar ganar a una sola operación.
+ */
+@DataJpaTest(properties = {
+        "spring.config.import=optional:configserver:",
+        "spring.cloud.config.enabled=false",
+        "spring.flyway.enabled=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingVersionConcurrencyTest {
+
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private RepoBooking repoBooking;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile CyclicBarrier readers;
+
+    @Test
+    void concurrentConfirmAndCancelNeverLoseAnUpdate() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // Ambas operaciones leen la misma versión antes de que alguna guarde
+        RepoBooking barrierRepo = mock(RepoBooking.class, delegatesTo(repoBooking));
+        doAnswer(invocation -> {
+            Optional<EntityBooking> booking = repoBooking.findById(invocation.getArgument(0));
+            readers.await(5, TimeUnit.SECONDS);
+            return booking;
+        }).when(barrierRepo).findById(anyLong());
+
+        ServiceOccupancy occupancy = new ServiceOccupancy(barrierRepo, 1000);
+        ServiceBooking serviceBooking = new ServiceBooking(barrierRepo, mock(ServicePricing.class), occupancy,
+                new ServiceSlotLock(64, 5000), mock(ServiceRevenueRollup.class), mock(ServiceVoucherCache.class),
+                mock(ServiceRackOutbox.class));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                LocalDate date = LocalDate.of(2025, 6, 1).plusDays(round);
+                EntityBooking booking = new EntityBooking();
+                booking.setBookingDate(date);
+                booking.setBookingTime(LocalTime.of(15, 0));
+                booking.setBookingTimeEnd(LocalTime.of(15, 30));
+                booking.setBookingStatus("sin confirmar");
+                Long bookingId = transactionTemplate.execute(status -> repoBooking.save(booking).getId());
+                readers = new CyclicBarrier(2);
+
+                Future<RuntimeException> confirm = pool.submit(() -> inTransaction(transactionTemplate, () -> serviceBooking.confirmBooking(bookingId)));
+                Future<RuntimeException> cancel = pool.submit(() -> inTransaction(transactionTemplate, () -> serviceBooking.cancelBooking(bookingId)));
+                RuntimeException confirmError = confirm.get(20, TimeUnit.SECONDS);
+                RuntimeException cancelError = cancel.get(20, TimeUnit.SECONDS);
+
+                assertTrue(confirmError == null ^ cancelError == null, "Exactamente una operación debe ganar");
+                RuntimeException loserError = confirmError != null ? confirmError : cancelError;
+                assertTrue(loserError instanceof ObjectOptimisticLockingFailureException, "La otra debe fallar por la versión: " + loserError);
+
+                EntityBooking stored = transactionTemplate.execute(status -> repoBooking.findById(bookingId).orElseThrow());
+                assertEquals(1L, stored.getVersion(), "Sólo el UPDATE ganador incrementa la versión");
+                if (confirmError == null) {
+                    assertEquals("confirmada", stored.getBookingStatus());
+                    assertFalse(occupancy.isFree(date, LocalTime.of(15, 0), 30), "Una reserva confirmada ocupa su horario");
+                } else {
+                    assertEquals("cancelada", stored.getBookingStatus());
+                    assertTrue(occupancy.isFree(date, LocalTime.of(15, 0), 30), "Una reserva cancelada no ocupa su horario");
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    //------------------------------------------------------------
+
+    // La versión se compara en el UPDATE del commit, así que el error del perdedor sale de execute
+    private RuntimeException inTransaction(TransactionTemplate transactionTemplate, Runnable work) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> work.run());
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
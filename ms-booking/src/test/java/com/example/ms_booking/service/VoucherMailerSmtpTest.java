@@ -0,0 +1,133 @@
+package com.example.ms_booking.service;
+
+import com.example.ms_booking.dto.VoucherDTO;
+import com.example.ms_booking.entity.EntityVoucherEmail;
+import com.example.ms_booking.repository.RepoBooking;
+import com.example.ms_booking.repository.RepoVoucherEmail;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.Multipart;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VoucherMailerSmtpTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final RepoVoucherEmail repoVoucherEmail = mock(RepoVoucherEmail.class);
+    private final ServiceVoucher serviceVoucher = mock(ServiceVoucher.class);
+    private final ExecutorService mailExecutor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutdown() {
+        mailExecutor.shutdownNow();
+    }
+
+    @Test
+    void sendsEveryRecipientOfABookingWithThePdfAttached() throws Exception {
+        ServiceVoucherMailer mailer = mailer(greenMail.getSmtp().getPort());
+        claim(email(1L, "uno@kartingrm.cl", 0), email(2L, "dos@kartingrm.cl", 0));
+
+        assertEquals(2, mailer.dispatchBatch());
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(2, received.length);
+        for (MimeMessage message : received) {
+            Multipart content = (Multipart) message.getContent();
+            assertEquals("Comprobante_7.pdf", content.getBodyPart(1).getFileName());
+        }
+        verify(repoVoucherEmail).markSent(argThat(ids -> ids.containsAll(List.of(1L, 2L)) && ids.size() == 2), any());
+        verify(repoVoucherEmail, never()).markFailed(any(), anyString(), anyInt(), any(), any());
+    }
+
+    @Test
+    void unreachableServerSchedulesARetryWithBackoff() throws Exception {
+        ServiceVoucherMailer mailer = mailer(closedPort());
+        claim(email(1L, "uno@kartingrm.cl", 0));
+        LocalDateTime before = LocalDateTime.now();
+
+        mailer.dispatchBatch();
+
+        verify(repoVoucherEmail).markFailed(eq(1L), eq(ServiceVoucherMailer.STATUS_PENDIENTE), eq(1),
+                argThat(next -> next.isAfter(before.plusSeconds(59))), anyString());
+        verify(repoVoucherEmail, never()).markSent(any(), any());
+    }
+
+    @Test
+    void lastAttemptMarksTheEmailAsFailed() throws Exception {
+        ServiceVoucherMailer mailer = mailer(closedPort());
+        claim(email(1L, "uno@kartingrm.cl", 4));
+
+        mailer.dispatchBatch();
+
+        verify(repoVoucherEmail).markFailed(eq(1L), eq(ServiceVoucherMailer.STATUS_FALLIDO), eq(5), any(), anyString());
+    }
+
+    @Test
+    void reclaimedEmailOverTheAttemptLimitIsFailedWithoutSending() throws Exception {
+        ServiceVoucherMailer mailer = mailer(greenMail.getSmtp().getPort());
+        claim(email(1L, "uno@kartingrm.cl", 5));
+
+        mailer.dispatchBatch();
+
+        assertEquals(0, greenMail.getReceivedMessages().length);
+        verify(repoVoucherEmail).markFailed(eq(1L), eq(ServiceVoucherMailer.STATUS_FALLIDO), eq(5), any(), any());
+        verify(repoVoucherEmail, never()).markSent(any(), any());
+    }
+
+    //------------------------------------------------------------
+
+    private ServiceVoucherMailer mailer(int smtpPort) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpPort);
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+
+        VoucherDTO voucher = new VoucherDTO();
+        voucher.setBookingId(7L);
+        when(serviceVoucher.loadVoucher(7L)).thenReturn(voucher);
+        when(serviceVoucher.renderPdf(voucher)).thenReturn("%PDF-1.4".getBytes());
+
+        return new ServiceVoucherMailer(repoVoucherEmail, mock(RepoBooking.class), serviceVoucher, mailSender,
+                mailExecutor, "reservas@kartingrm.cl", 50, 5, 60000, 600000, 300000);
+    }
+
+    private void claim(EntityVoucherEmail... emails) {
+        when(repoVoucherEmail.claimBatch(any(), any(), anyString(), eq(50))).thenReturn(emails.length);
+        when(repoVoucherEmail.findByClaimToken(anyString())).thenReturn(List.of(emails));
+    }
+
+    private EntityVoucherEmail email(Long id, String recipient, int attempts) {
+        LocalDateTime now = LocalDateTime.now();
+        return new EntityVoucherEmail(id, 7L, recipient, "enviando", attempts, now, "lote", null, now, null);
+    }
+
+    private int closedPort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            assertTrue(socket.getLocalPort() > 0);
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.ms_discounts1.controller;
 
+import com.example.ms_discounts1.dto.DiscountBatchRequest;
 import com.example.ms_discounts1.service.ServiceDiscounts1;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -18,4 +20,17 @@ public class ControlDiscounts1 {
     public int discountForNumOfPeople(@PathVariable Integer numOfPeople, @PathVariable int basePrice) {
         return serviceDiscounts1.discountsForNumOfPeople(numOfPeople, basePrice);
     }
+
+    /**
+     * Método para obtener en una sola llamada los descuentos para varios números de integrantes
+     * @param request precio base y lista de número de integrantes
+     * @return precios con descuento, en el mismo orden de la entrada; 400 si falta algún dato
+     */
+    @PostMapping("/discount/batch")
+    public ResponseEntity<int[]> discountsForNumOfPeople(@RequestBody DiscountBatchRequest request) {
+        if (request.getBasePrice() == null || request.getNumOfPeople() == null || request.getNumOfPeople().contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(serviceDiscounts1.discountsForNumOfPeople(request.getNumOfPeople(), request.getBasePrice()));
+    }
 }
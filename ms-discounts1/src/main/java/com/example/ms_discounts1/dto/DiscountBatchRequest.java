@@ -0,0 +1,17 @@
+package com.example.ms_discounts1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiscountBatchRequest {
+    private Integer basePrice;
+    private List<Integer> numOfPeople;
+}
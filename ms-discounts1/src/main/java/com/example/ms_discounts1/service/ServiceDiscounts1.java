@@ -2,6 +2,8 @@ package com.example.ms_discounts1.service;
 
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 public class ServiceDiscounts1 {
     public int discountsForNumOfPeople(Integer numOfPeople, int basePrice) {
@@ -17,4 +19,18 @@ public class ServiceDiscounts1 {
         }
         return basePrice - ((basePrice * discount) / 100);
     }
+
+    /**
+     * Método para calcular el descuento por número de integrantes para varios valores a la vez
+     * @param numOfPeople lista de número de integrantes
+     * @param basePrice precio base
+     * @return precios con descuento, en el mismo orden de la entrada
+     */
+    public int[] discountsForNumOfPeople(List<Integer> numOfPeople, int basePrice) {
+        int[] prices = new int[numOfPeople.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = discountsForNumOfPeople(numOfPeople.get(i), basePrice);
+        }
+        return prices;
+    }
 }
@@ -1,6 +1,8 @@
 package com.example.ms_discounts2.controller;
 
+import com.example.ms_discounts2.dto.DiscountBatchRequest;
 import com.example.ms_discounts2.service.ServiceDiscounts2;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -25,4 +27,17 @@ public class ControlDiscounts2 {
     public int discountForVisitsPerMonth(@PathVariable Integer visitsPerMonth, @PathVariable int basePrice){
         return serviceDiscounts2.discountForVisitsPerMonth(visitsPerMonth, basePrice);
     }
+
+    /**
+     * Método para obtener en una sola llamada los descuentos para varias cantidades de visitas por mes
+     * @param request precio base y lista de visitas por mes
+     * @return precios con descuento, en el mismo orden de la entrada; 400 si falta algún dato
+     */
+    @PostMapping("/discount/batch")
+    public ResponseEntity<int[]> discountForVisitsPerMonth(@RequestBody DiscountBatchRequest request) {
+        if (request.getBasePrice() == null || request.getVisitsPerMonth() == null || request.getVisitsPerMonth().contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(serviceDiscounts2.discountForVisitsPerMonth(request.getVisitsPerMonth(), request.getBasePrice()));
+    }
 }
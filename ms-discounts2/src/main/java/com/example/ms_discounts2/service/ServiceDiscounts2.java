@@ -2,6 +2,8 @@ package com.example.ms_discounts2.service;
 
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 public class ServiceDiscounts2 {
     /**
@@ -23,4 +25,18 @@ public class ServiceDiscounts2 {
         }
         return basePrice - ((basePrice * discount) / 100);
     }
+
+    /**
+     * Método para calcular el descuento por visitas al mes para varios clientes a la vez
+     * @param visitsPerMonth lista de visitas por mes
+     * @param basePrice precio base
+     * @return precios con descuento, en el mismo orden de la entrada
+     */
+    public int[] discountForVisitsPerMonth(List<Integer> visitsPerMonth, int basePrice) {
+        int[] prices = new int[visitsPerMonth.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = discountForVisitsPerMonth(visitsPerMonth.get(i), basePrice);
+        }
+        return prices;
+    }
 }
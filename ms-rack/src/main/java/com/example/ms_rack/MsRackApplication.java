@@ -2,8 +2,10 @@ package com.example.ms_rack;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class MsRackApplication {
 
 	public static void main(String[] args) {
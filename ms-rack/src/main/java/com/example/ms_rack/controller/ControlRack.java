@@ -2,13 +2,24 @@ package com.example.ms_rack.controller;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.example.ms_rack.dto.RackChangeDTO;
+import com.example.ms_rack.dto.RackDayDigestDTO;
+import com.example.ms_rack.dto.RackWeekDTO;
 import com.example.ms_rack.entity.EntityRack;
 import com.example.ms_rack.service.ServiceRack;
+import com.example.ms_rack.service.ServiceRackEvents;
+import com.example.ms_rack.service.ServiceRackWeek;
 
 @RestController
 @RequestMapping("/rack")
@@ -16,9 +27,13 @@ import com.example.ms_rack.service.ServiceRack;
 public class ControlRack {
 
     private final ServiceRack serviceRack;
+    private final ServiceRackWeek serviceRackWeek;
+    private final ServiceRackEvents serviceRackEvents;
 
-    public ControlRack(ServiceRack serviceRack) {
+    public ControlRack(ServiceRack serviceRack, ServiceRackWeek serviceRackWeek, ServiceRackEvents serviceRackEvents) {
         this.serviceRack = serviceRack;
+        this.serviceRackWeek = serviceRackWeek;
+        this.serviceRackEvents = serviceRackEvents;
     }
 
     @PostMapping("/save/{id}/{bookingDate}/{bookingTime}/{bookingTimeEnd}/{bookingStatus}/{clientName}")
@@ -36,10 +51,104 @@ public class ControlRack {
         serviceRack.deleteRack(id);
     }
 
+    /**
+     * Método para aplicar un lote de altas, cambios y bajas del rack (lo usa ms-booking)
+     * @param changes cambios en el orden en que ocurrieron
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Void> applyChanges(@RequestBody List<RackChangeDTO> changes) {
+        serviceRack.applyChanges(changes);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/getBookingsForRack/{month}/{year}")
     public ResponseEntity<List<EntityRack>> getBookingsForRack(@PathVariable String month, @PathVariable String year){
         List<EntityRack> bookings = serviceRack.getBookingsForRack(month, year);
         return ResponseEntity.ok(bookings);
     }
-}
 
+    /**
+     * Método para obtener el hash de las reservas de cada día de un rango [from, to)
+     * @param from fecha inicial (incluida)
+     * @param to fecha final (excluida)
+     * @return un resumen por cada día que tiene reservas
+     */
+    @GetMapping("/digest")
+    public ResponseEntity<List<RackDayDigestDTO>> getDigest(@RequestParam LocalDate from, @RequestParam LocalDate to) {
+        return ResponseEntity.ok(serviceRack.getDigest(from, to));
+    }
+
+    /**
+     * Método para obtener las reservas del rack de varios días
+     * @param dates días a consultar
+     * @return reservas de esos días
+     */
+    @GetMapping("/days")
+    public ResponseEntity<List<EntityRack>> getBookingsForDays(@RequestParam List<LocalDate> dates) {
+        return ResponseEntity.ok(serviceRack.getBookingsForDays(dates));
+    }
+
+    /**
+     * Método para obtener el rack de una semana ISO como grilla día x hora. Si la semana no cambió
+     * desde el ETag que envía el cliente se responde 304 sin consultar la base de datos.
+     * @param isoWeek semana en formato 2025-W15
+     * @param ifNoneMatch ETag que el cliente ya tiene
+     * @return grilla de la semana
+     */
+    @GetMapping("/week/{isoWeek}")
+    public ResponseEntity<RackWeekDTO> getWeek(@PathVariable String isoWeek,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        LocalDate weekStart;
+        try {
+            weekStart = serviceRackWeek.weekStart(isoWeek);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // El navegador revalida siempre (no-cache) y recibe 304 mientras la semana no cambie
+        CacheControl cacheControl = CacheControl.noCache();
+        String cachedEtag = serviceRackWeek.cachedEtag(weekStart);
+        if (cachedEtag != null && matches(ifNoneMatch, cachedEtag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cachedEtag).cacheControl(cacheControl).build();
+        }
+
+        ServiceRackWeek.CachedWeek week = serviceRackWeek.getWeek(weekStart);
+        if (matches(ifNoneMatch, week.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(week.etag()).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(week.etag()).cacheControl(cacheControl).body(week.grid());
+    }
+
+    /**
+     * Método para recibir los cambios del rack a medida que ocurren (server-sent events), en vez de
+     * volver a consultar la semana. Cada evento "rack" trae la reserva que cambió.
+     * @param week semana en formato 2025-W15 para recibir sólo sus cambios (opcional)
+     * @return conexión SSE
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(@RequestParam(required = false) String week) {
+        LocalDate weekStart = null;
+        if (week != null) {
+            try {
+                weekStart = serviceRackWeek.weekStart(week);
+            } catch (DateTimeParseException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok(serviceRackEvents.subscribe(weekStart));
+    }
+
+    // If-None-Match puede traer varios ETags separados por coma o "*"
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
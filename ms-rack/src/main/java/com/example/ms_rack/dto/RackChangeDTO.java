@@ -0,0 +1,26 @@
+package com.example.ms_rack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Cambio de una reserva en el rack enviado por ms-booking. Para "delete" sólo se usa el id.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RackChangeDTO {
+    private Long id;
+    private String operation; // upsert o delete
+    private LocalDate bookingDate;
+    private LocalTime bookingTime;
+    private LocalTime bookingTimeEnd;
+    private String bookingStatus;
+    private String clientName;
+}
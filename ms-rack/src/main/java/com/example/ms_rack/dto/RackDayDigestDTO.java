@@ -0,0 +1,22 @@
+package com.example.ms_rack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Resumen de las reservas de un día en el rack: cantidad y hash de sus filas ordenadas por ID.
+ * ms-booking calcula el mismo hash sobre sus reservas confirmadas para detectar los días distintos.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RackDayDigestDTO {
+    private LocalDate bookingDate;
+    private Long bookings;
+    private String hash;
+}
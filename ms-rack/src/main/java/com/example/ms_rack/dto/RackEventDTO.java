@@ -0,0 +1,27 @@
+package com.example.ms_rack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Cambio de una reserva en el rack que se envía a las pantallas abiertas. El cliente quita la
+ * reserva de la grilla y, si es "upsert" de una reserva confirmada, la vuelve a poner en su celda.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RackEventDTO {
+    private Long id;
+    private String operation; // upsert o delete
+    private LocalDate bookingDate;
+    private LocalTime bookingTime;
+    private LocalTime bookingTimeEnd;
+    private String bookingStatus;
+    private String clientName;
+}
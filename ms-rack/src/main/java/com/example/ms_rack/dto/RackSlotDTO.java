@@ -0,0 +1,22 @@
+package com.example.ms_rack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalTime;
+
+/**
+ * Reserva dentro de una celda (día, hora) del rack semanal.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RackSlotDTO {
+    private Long id;
+    private LocalTime bookingTime;
+    private LocalTime bookingTimeEnd;
+    private String clientName;
+}
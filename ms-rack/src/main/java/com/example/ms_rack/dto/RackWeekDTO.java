@@ -0,0 +1,24 @@
+package com.example.ms_rack.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Rack de una semana ISO ya armado: cells[día][hora] tiene las reservas confirmadas que
+ * comienzan en esa hora, ordenadas por hora de inicio.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RackWeekDTO {
+    private String week;             // 2025-W15
+    private List<LocalDate> days;    // lunes a domingo
+    private List<Integer> hours;     // 10, 11, ... 22
+    private List<List<List<RackSlotDTO>>> cells;
+}
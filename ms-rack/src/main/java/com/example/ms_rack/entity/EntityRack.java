@@ -2,6 +2,7 @@ package com.example.ms_rack.entity;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -16,7 +17,10 @@ import java.time.LocalTime;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "rack")
+@Table(name = "rack", indexes = {
+        @Index(name = "idx_rack_status_date", columnList = "booking_status, booking_date"),
+        @Index(name = "idx_rack_date_time", columnList = "booking_date, booking_time")
+})
 public class EntityRack {
     @Id
     private Long id;
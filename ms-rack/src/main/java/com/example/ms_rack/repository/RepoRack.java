@@ -5,10 +5,30 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface RepoRack extends JpaRepository<EntityRack, Long> {
-    @Query("SELECT b FROM EntityRack b WHERE b.bookingStatus = ?1 AND MONTH(b.bookingDate) = ?2 AND YEAR(b.bookingDate) = ?3")
-    List<EntityRack> findByStatusAndMonthAndYear(String status, String month, String year);
+    // Rango semiabierto [from, to) para que la consulta use el índice (booking_status, booking_date)
+    @Query("SELECT b FROM EntityRack b WHERE b.bookingStatus = ?1 AND b.bookingDate >= ?2 AND b.bookingDate < ?3")
+    List<EntityRack> findByStatusAndDateRange(String status, LocalDate from, LocalDate to);
+
+    List<EntityRack> findByBookingDateIn(Collection<LocalDate> dates);
+
+    // Hash por día de las filas ordenadas por ID (día, cantidad, md5). Debe calcularse igual que
+    // RepoBooking.rackDigestByDateRange en ms-booking
+    @Query(value = """
+            SELECT CAST(r.booking_date AS VARCHAR), COUNT(*),
+                   md5(string_agg(concat_ws('|', r.id, COALESCE(CAST(r.booking_time AS VARCHAR), ''),
+                                            COALESCE(CAST(r.booking_time_end AS VARCHAR), ''),
+                                            COALESCE(r.booking_status, ''), COALESCE(r.client_name, '')),
+                                  ',' ORDER BY r.id))
+            FROM rack r
+            WHERE r.booking_date >= ?1 AND r.booking_date < ?2
+            GROUP BY r.booking_date
+            ORDER BY r.booking_date
+            """, nativeQuery = true)
+    List<Object[]> digestByDateRange(LocalDate from, LocalDate to);
 }
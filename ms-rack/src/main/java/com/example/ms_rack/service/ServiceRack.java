@@ -1,20 +1,37 @@
 package com.example.ms_rack.service;
 
+import com.example.ms_rack.dto.RackChangeDTO;
+import com.example.ms_rack.dto.RackDayDigestDTO;
+import com.example.ms_rack.dto.RackEventDTO;
 import com.example.ms_rack.entity.EntityRack;
 import com.example.ms_rack.repository.RepoRack;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-    @Service
+@Service
 public class ServiceRack {
 
     private final RepoRack repoRack;
+    private final ServiceRackWeek serviceRackWeek;
+    private final ServiceRackEvents serviceRackEvents;
 
-    public ServiceRack(RepoRack repoRack) {
+    public ServiceRack(RepoRack repoRack, ServiceRackWeek serviceRackWeek, ServiceRackEvents serviceRackEvents) {
         this.repoRack = repoRack;
+        this.serviceRackWeek = serviceRackWeek;
+        this.serviceRackEvents = serviceRackEvents;
     }
 
     public void saveRack(Long id, LocalDate bookingDate, LocalTime bookingTime, LocalTime bookingTimeEnd, String bookingStatus, String clientName) {
@@ -25,14 +42,129 @@ public class ServiceRack {
         entityRack.setBookingTimeEnd(bookingTimeEnd);
         entityRack.setBookingStatus(bookingStatus);
         entityRack.setClientName(clientName);
+        Set<LocalDate> changedDates = new HashSet<>();
+        changedDates.add(bookingDate);
+        repoRack.findById(id).ifPresent(previous -> changedDates.add(previous.getBookingDate()));
         repoRack.save(entityRack);
+        Map<RackEventDTO, Set<LocalDate>> events = new LinkedHashMap<>();
+        events.put(new RackEventDTO(id, "upsert", bookingDate, bookingTime, bookingTimeEnd, bookingStatus, clientName), changedDates);
+        afterCommit(changedDates, events);
     }
 
     public void deleteRack(Long id) {
+        Set<LocalDate> changedDates = new HashSet<>();
+        repoRack.findById(id).ifPresent(previous -> changedDates.add(previous.getBookingDate()));
         repoRack.deleteById(id);
+        Map<RackEventDTO, Set<LocalDate>> events = new LinkedHashMap<>();
+        events.put(new RackEventDTO(id, "delete", null, null, null, null, null), changedDates);
+        afterCommit(changedDates, events);
+    }
+
+    /**
+     * Método para aplicar un lote de cambios enviado por ms-booking, en el orden recibido.
+     * De cada reserva sólo importa su último cambio del lote, así que los lotes repetidos
+     * (reintentos) dejan el mismo resultado.
+     * @param changes cambios (upsert o delete)
+     */
+    @Transactional
+    public void applyChanges(List<RackChangeDTO> changes) {
+        Map<Long, RackChangeDTO> last = new LinkedHashMap<>();
+        for (RackChangeDTO change : changes) {
+            last.remove(change.getId());
+            last.put(change.getId(), change);
+        }
+
+        // Carga las filas existentes en una sola consulta: así saveAll no hace un SELECT por fila
+        // y se conocen las fechas anteriores de las reservas que cambian o se eliminan
+        Set<LocalDate> changedDates = new HashSet<>();
+        Map<Long, LocalDate> previousDates = new HashMap<>();
+        for (EntityRack previous : repoRack.findAllById(last.keySet())) {
+            changedDates.add(previous.getBookingDate());
+            previousDates.put(previous.getId(), previous.getBookingDate());
+        }
+
+        List<EntityRack> upserts = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>();
+        Map<RackEventDTO, Set<LocalDate>> events = new LinkedHashMap<>();
+        for (RackChangeDTO change : last.values()) {
+            Set<LocalDate> eventDates = new HashSet<>();
+            if (previousDates.get(change.getId()) != null) {
+                eventDates.add(previousDates.get(change.getId()));
+            }
+            if ("delete".equals(change.getOperation())) {
+                deletes.add(change.getId());
+                events.put(new RackEventDTO(change.getId(), "delete", null, null, null, null, null), eventDates);
+            } else {
+                upserts.add(new EntityRack(change.getId(), change.getBookingDate(), change.getBookingTime(),
+                        change.getBookingTimeEnd(), change.getBookingStatus(), change.getClientName()));
+                changedDates.add(change.getBookingDate());
+                eventDates.add(change.getBookingDate());
+                events.put(new RackEventDTO(change.getId(), "upsert", change.getBookingDate(), change.getBookingTime(),
+                        change.getBookingTimeEnd(), change.getBookingStatus(), change.getClientName()), eventDates);
+            }
+        }
+        if (!deletes.isEmpty()) {
+            repoRack.deleteAllByIdInBatch(deletes);
+        }
+        if (!upserts.isEmpty()) {
+            repoRack.saveAll(upserts);
+        }
+        afterCommit(changedDates, events);
     }
 
     public List<EntityRack> getBookingsForRack(String month, String year) {
-        return repoRack.findByStatusAndMonthAndYear("confirmada", month, year);
+        LocalDate from = YearMonth.of(Integer.parseInt(year), Integer.parseInt(month)).atDay(1);
+        return repoRack.findByStatusAndDateRange("confirmada", from, from.plusMonths(1));
+    }
+
+    /**
+     * Método para obtener el hash de las reservas de cada día de un rango (lo usa la reconciliación de ms-booking)
+     * @param from fecha inicial (incluida)
+     * @param to fecha final (excluida)
+     * @return un resumen por cada día que tiene reservas
+     */
+    public List<RackDayDigestDTO> getDigest(LocalDate from, LocalDate to) {
+        List<RackDayDigestDTO> digest = new ArrayList<>();
+        for (Object[] row : repoRack.digestByDateRange(from, to)) {
+            digest.add(new RackDayDigestDTO(LocalDate.parse((String) row[0]), ((Number) row[1]).longValue(), (String) row[2]));
+        }
+        return digest;
+    }
+
+    /**
+     * Método para obtener las reservas del rack de varios días
+     * @param dates días
+     * @return reservas de esos días
+     */
+    public List<EntityRack> getBookingsForDays(List<LocalDate> dates) {
+        return dates.isEmpty() ? List.of() : repoRack.findByBookingDateIn(dates);
+    }
+
+    // Dentro de una transacción se descarta la caché y se avisa a las pantallas después del commit,
+    // para que una lectura concurrente no vuelva a guardar la semana con los datos anteriores y
+    // ninguna pantalla muestre un cambio que luego se revierte
+    private void afterCommit(Set<LocalDate> dates, Map<RackEventDTO, Set<LocalDate>> events) {
+        if (dates.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notifyChanges(dates, events);
+                }
+            });
+        } else {
+            notifyChanges(dates, events);
+        }
+    }
+
+    private void notifyChanges(Set<LocalDate> dates, Map<RackEventDTO, Set<LocalDate>> events) {
+        serviceRackWeek.invalidate(dates);
+        events.forEach((event, eventDates) -> {
+            if (!eventDates.isEmpty()) {
+                serviceRackEvents.publish(event, eventDates);
+            }
+        });
     }
 }
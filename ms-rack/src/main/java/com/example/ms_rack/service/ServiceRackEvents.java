@@ -0,0 +1,153 @@
+package com.example.ms_rack.service;
+
+import com.example.ms_rack.dto.RackEventDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envío de los cambios del rack a las pantallas abiertas mediante server-sent events.
+ * Cada suscriptor tiene un buffer acotado que se vacía en un pool compartido; si una pantalla
+ * no alcanza a recibir y su buffer se llena, se cierra su conexión (el navegador se reconecta y
+ * vuelve a cargar la semana), así un cliente lento no frena a los demás ni acumula memoria.
+ */
+@Service
+public class ServiceRackEvents {
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final int bufferSize;
+    private final long timeoutMs;
+    private final ExecutorService senders;
+
+    public ServiceRackEvents(@Value("${rack.events.buffer-size:256}") int bufferSize,
+                             @Value("${rack.events.timeout-ms:1800000}") long timeoutMs,
+                             @Value("${rack.events.sender-threads:4}") int senderThreads) {
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger counter = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "rack-events-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //------------------------------------------------------------
+
+    /**
+     * Método para suscribirse a los cambios del rack
+     * @param weekStart lunes de la semana que se muestra, o null para recibir todos los cambios
+     * @return conexión SSE
+     */
+    public SseEmitter subscribe(LocalDate weekStart) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, weekStart, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        // Primer mensaje para que el navegador sepa que la conexión quedó abierta
+        subscriber.offer(SseEmitter.event().comment("conectado"));
+        return emitter;
+    }
+
+    /**
+     * Método para enviar un cambio a las pantallas que muestran alguna de las fechas afectadas
+     * @param event cambio de la reserva
+     * @param dates fecha nueva y anterior de la reserva
+     */
+    public void publish(RackEventDTO event, Collection<LocalDate> dates) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.shows(dates)) {
+                subscriber.offer(SseEmitter.event().name("rack").data(event, MediaType.APPLICATION_JSON));
+            }
+        }
+    }
+
+    /**
+     * Método para mantener abiertas las conexiones sin cambios (los proxies cierran las inactivas)
+     * y detectar las pantallas que ya se cerraron
+     */
+    @Scheduled(fixedDelayString = "${rack.events.heartbeat-ms:30000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(SseEmitter.event().comment("ping"));
+        }
+    }
+
+    //------------------------------------------------------------
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final LocalDate weekStart;
+        private final Queue<SseEmitter.SseEventBuilder> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+
+        private Subscriber(SseEmitter emitter, LocalDate weekStart, Queue<SseEmitter.SseEventBuilder> buffer) {
+            this.emitter = emitter;
+            this.weekStart = weekStart;
+            this.buffer = buffer;
+        }
+
+        private boolean shows(Collection<LocalDate> dates) {
+            if (weekStart == null) {
+                return true;
+            }
+            for (LocalDate date : dates) {
+                if (date != null && weekStart.equals(date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void offer(SseEmitter.SseEventBuilder event) {
+            if (!buffer.offer(event)) {
+                System.out.println("Pantalla del rack desconectada por no alcanzar a recibir los cambios");
+                subscribers.remove(this);
+                buffer.clear();
+                emitter.complete();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        // Un solo envío a la vez por suscriptor, en el orden en que llegaron los cambios
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while ((event = buffer.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(this);
+                buffer.clear();
+                emitter.completeWithError(e);
+            } finally {
+                draining.set(false);
+            }
+            // Lo que llegó justo después de vaciar el buffer
+            if (!buffer.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.ms_rack.service;
+
+import com.example.ms_rack.dto.RackSlotDTO;
+import com.example.ms_rack.dto.RackWeekDTO;
+import com.example.ms_rack.entity.EntityRack;
+import com.example.ms_rack.repository.RepoRack;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rack semanal ya armado como grilla día x hora, con caché por semana y un ETag por versión.
+ * Cuando cambia una reserva se descarta la semana de su fecha; mientras la semana no cambie,
+ * una petición con If-None-Match se responde sin consultar la base de datos.
+ */
+@Service
+public class ServiceRackWeek {
+
+    private static final String STATUS_CONFIRMADA = "confirmada";
+    private static final DateTimeFormatter ISO_WEEK = DateTimeFormatter.ISO_WEEK_DATE;
+
+    private final RepoRack repoRack;
+    private final ObjectMapper objectMapper;
+    private final int firstHour;
+    private final int lastHour;
+    private final Map<LocalDate, CachedWeek> cache;
+    private long generation;
+
+    public ServiceRackWeek(RepoRack repoRack, ObjectMapper objectMapper,
+                           @Value("${rack.grid.first-hour:10}") int firstHour,
+                           @Value("${rack.grid.last-hour:22}") int lastHour,
+                           @Value("${rack.grid.cache.max-weeks:104}") int maxWeeks) {
+        this.repoRack = repoRack;
+        this.objectMapper = objectMapper;
+        this.firstHour = firstHour;
+        this.lastHour = lastHour;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDate, CachedWeek> eldest) {
+                return size() > maxWeeks;
+            }
+        };
+    }
+
+    /**
+     * Grilla de una semana y su ETag (entre comillas, listo para el encabezado).
+     */
+    public record CachedWeek(RackWeekDTO grid, String etag) {
+    }
+
+    //------------------------------------------------------------
+
+    /**
+     * Método para obtener el lunes de una semana ISO
+     * @param isoWeek semana en formato 2025-W15
+     * @return lunes de la semana
+     */
+    public LocalDate weekStart(String isoWeek) {
+        return LocalDate.parse(isoWeek + "-1", ISO_WEEK);
+    }
+
+    /**
+     * Método para obtener el ETag de una semana si está en caché
+     * @param weekStart lunes de la semana
+     * @return ETag o null si la semana no está en caché
+     */
+    public synchronized String cachedEtag(LocalDate weekStart) {
+        CachedWeek cached = cache.get(weekStart);
+        return cached != null ? cached.etag() : null;
+    }
+
+    /**
+     * Método para obtener la grilla de una semana desde la caché o armarla si no está
+     * @param weekStart lunes de la semana
+     * @return grilla y ETag
+     */
+    public CachedWeek getWeek(LocalDate weekStart) {
+        long loadGeneration;
+        synchronized (this) {
+            CachedWeek cached = cache.get(weekStart);
+            if (cached != null) {
+                return cached;
+            }
+            loadGeneration = generation;
+        }
+
+        RackWeekDTO grid = buildGrid(weekStart);
+        CachedWeek loaded = new CachedWeek(grid, etag(grid));
+        synchronized (this) {
+            // Si hubo un cambio mientras se armaba la grilla, se entrega pero no se guarda
+            if (generation == loadGeneration) {
+                cache.put(weekStart, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Método para descartar las semanas que contienen las fechas indicadas
+     * @param dates fechas de las reservas que cambiaron
+     */
+    public synchronized void invalidate(Collection<LocalDate> dates) {
+        generation++;
+        for (LocalDate date : dates) {
+            if (date != null) {
+                cache.remove(date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+            }
+        }
+    }
+
+    //------------------------------------------------------------
+
+    private RackWeekDTO buildGrid(LocalDate weekStart) {
+        List<LocalDate> days = new ArrayList<>(7);
+        for (int d = 0; d < 7; d++) {
+            days.add(weekStart.plusDays(d));
+        }
+        List<Integer> hours = new ArrayList<>(lastHour - firstHour + 1);
+        for (int h = firstHour; h <= lastHour; h++) {
+            hours.add(h);
+        }
+        List<List<List<RackSlotDTO>>> cells = new ArrayList<>(7);
+        for (int d = 0; d < 7; d++) {
+            List<List<RackSlotDTO>> dayCells = new ArrayList<>(hours.size());
+            for (int h = 0; h < hours.size(); h++) {
+                dayCells.add(new ArrayList<>(1));
+            }
+            cells.add(dayCells);
+        }
+
+        List<EntityRack> bookings = new ArrayList<>(repoRack.findByStatusAndDateRange(STATUS_CONFIRMADA, weekStart, weekStart.plusDays(7)));
+        bookings.sort(Comparator.comparing(EntityRack::getBookingTime, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(EntityRack::getId));
+        for (EntityRack booking : bookings) {
+            if (booking.getBookingTime() == null) {
+                continue;
+            }
+            int day = booking.getBookingDate().getDayOfWeek().getValue() - 1;
+            int hour = booking.getBookingTime().getHour();
+            if (hour < firstHour || hour > lastHour) {
+                continue;
+            }
+            cells.get(day).get(hour - firstHour).add(new RackSlotDTO(booking.getId(), booking.getBookingTime(),
+                    booking.getBookingTimeEnd(), booking.getClientName()));
+        }
+
+        String week = weekStart.get(IsoFields.WEEK_BASED_YEAR) + "-W"
+                + String.format("%02d", weekStart.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+        return new RackWeekDTO(week, days, hours, cells);
+    }
+
+    // ETag fuerte: hash del JSON que se entrega, así dos grillas iguales tienen el mismo ETag
+    private String etag(RackWeekDTO grid) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(grid));
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No se pudo calcular el ETag del rack", e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+-- Esquema base de ms-rack. Es idempotente para las bases creadas antes con ddl-auto
+-- o con deployment/ms-rack-db.sql.
+
+CREATE TABLE IF NOT EXISTS rack (
+    id               BIGINT NOT NULL,
+    booking_date     DATE,
+    booking_status   VARCHAR(255),
+    booking_time     TIME(6),
+    booking_time_end TIME(6),
+    client_name      VARCHAR(255),
+    PRIMARY KEY (id)
+);
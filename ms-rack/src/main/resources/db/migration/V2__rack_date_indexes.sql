@@ -0,0 +1,4 @@
+-- Rack mensual: estado + rango de fechas
+CREATE INDEX IF NOT EXISTS idx_rack_status_date ON rack (booking_status, booking_date);
+-- Rack de un día ordenado por hora
+CREATE INDEX IF NOT EXISTS idx_rack_date_time ON rack (booking_date, booking_time);
@@ -1,9 +1,12 @@
 package com.example.ms_rates.controller;
 
+import com.example.ms_rates.dto.TariffDTO;
 import com.example.ms_rates.service.ServiceRates;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/rates")
 @CrossOrigin(origins = "*")
@@ -37,4 +40,13 @@ public class ControlRates {
         return ResponseEntity.ok(duration);
     }
 
+    /**
+     * Método para obtener la tarifa completa en una sola llamada
+     * @return ResponseEntity<List<TariffDTO>>
+     */
+    @GetMapping("/tariff")
+    public ResponseEntity<List<TariffDTO>> getTariff() {
+        return ResponseEntity.ok(serviceRates.getTariff());
+    }
+
 }
@@ -0,0 +1,16 @@
+package com.example.ms_rates.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TariffDTO {
+    private Integer lapsOrMaxTimeAllowed;
+    private Integer basePrice;
+    private Integer duration;
+}
@@ -1,10 +1,16 @@
 package com.example.ms_rates.service;
 
+import com.example.ms_rates.dto.TariffDTO;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 public class ServiceRates {
 
+    private static final int[] LAPS_OR_MAX_TIME_ALLOWED = {10, 15, 20};
+
     public int calculatePrice(Integer lapsOrMaxTimeAllowed){
         int basePrice;
         if (lapsOrMaxTimeAllowed == 10) {
@@ -32,4 +38,16 @@ public class ServiceRates {
         }
         return duration;
     }
+
+    /**
+     * Método para obtener la tarifa completa (precio base y duración para cada cantidad de vueltas)
+     * @return lista con la tarifa
+     */
+    public List<TariffDTO> getTariff() {
+        List<TariffDTO> tariff = new ArrayList<>();
+        for (int laps : LAPS_OR_MAX_TIME_ALLOWED) {
+            tariff.add(new TariffDTO(laps, calculatePrice(laps), calculateDuration(laps)));
+        }
+        return tariff;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.example.ms_reports.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ReportExecutorConfig {
+
+    /**
+     * Pool acotado para calcular en paralelo los reportes de cada categoría.
+     * Si la cola se llena, el cálculo se rechaza y el dashboard lo informa como categoría fallida,
+     * así el hilo de la petición no queda calculando fuera del plazo del armado.
+     */
+    @Bean(name = "reportExecutor", destroyMethod = "shutdown")
+    public ExecutorService reportExecutor(@Value("${report.executor.pool-size:8}") int poolSize,
+                                          @Value("${report.executor.queue-capacity:64}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "report-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -1,16 +1,43 @@
 package com.example.ms_reports.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * RestTemplate con timeouts para los reportes: el timeout de lectura no supera el plazo del dashboard,
+     * así una categoría que no terminó a tiempo libera su hilo del pool en vez de esperar a ms-booking.
+     */
     @Bean
+    @Primary
     @LoadBalanced
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(@Value("${rest.connect-timeout-ms:1000}") int connectTimeoutMs,
+                                     @Value("${rest.read-timeout-ms:${report.dashboard.deadline-ms:5000}}") int readTimeoutMs) {
+        return withTimeouts(connectTimeoutMs, readTimeoutMs);
+    }
+
+    /**
+     * RestTemplate para las exportaciones en streaming: el timeout de lectura es el máximo entre dos
+     * bloques de filas, no la duración total, y es más largo porque ms-booking recorre muchas reservas.
+     */
+    @Bean
+    @LoadBalanced
+    public RestTemplate exportRestTemplate(@Value("${rest.connect-timeout-ms:1000}") int connectTimeoutMs,
+                                           @Value("${rest.export-read-timeout-ms:60000}") int readTimeoutMs) {
+        return withTimeouts(connectTimeoutMs, readTimeoutMs);
+    }
+
+    private RestTemplate withTimeouts(int connectTimeoutMs, int readTimeoutMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        return new RestTemplate(requestFactory);
     }
 }
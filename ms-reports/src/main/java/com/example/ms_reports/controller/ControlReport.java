@@ -1,9 +1,19 @@
 package com.example.ms_reports.controller;
 
+import com.example.ms_reports.dto.DashboardDTO;
+import com.example.ms_reports.service.ServiceDashboard;
+import com.example.ms_reports.service.ServiceExport;
 import com.example.ms_reports.service.ServiceReport;
+import com.example.ms_reports.service.ServiceReportCache;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.Year;
 import java.util.List;
 
 @RestController
@@ -12,9 +22,16 @@ import java.util.List;
 public class ControlReport {
 
     private final ServiceReport serviceReport;
+    private final ServiceReportCache serviceReportCache;
+    private final ServiceExport serviceExport;
+    private final ServiceDashboard serviceDashboard;
 
-    public ControlReport(ServiceReport serviceReport) {
+    public ControlReport(ServiceReport serviceReport, ServiceReportCache serviceReportCache, ServiceExport serviceExport,
+                         ServiceDashboard serviceDashboard) {
         this.serviceReport = serviceReport;
+        this.serviceReportCache = serviceReportCache;
+        this.serviceExport = serviceExport;
+        this.serviceDashboard = serviceDashboard;
     }
 
     /**
@@ -23,8 +40,8 @@ public class ControlReport {
      * @return Lista de ingresos totales
      */
     @GetMapping("/getBookingsForReport1/{lapsOrTimeMax}/{startMonth}/{endMonth}")
-    public ResponseEntity<List<Integer>> getIncomesForMonthOfLaps(@PathVariable Integer lapsOrTimeMax, @PathVariable Integer startMonth, @PathVariable Integer endMonth) {
-        List<Integer> incomes = serviceReport.getIncomesForMonthOfLaps(lapsOrTimeMax, startMonth, endMonth);
+    public ResponseEntity<List<Integer>> getIncomesForMonthOfLaps(@PathVariable Integer lapsOrTimeMax, @PathVariable Integer startMonth, @PathVariable Integer endMonth, @RequestParam(required = false) Integer year) {
+        List<Integer> incomes = serviceReport.getIncomesForMonthOfLaps(lapsOrTimeMax, yearOrCurrent(year), startMonth, endMonth);
         return ResponseEntity.ok(incomes);
     }
 
@@ -32,8 +49,8 @@ public class ControlReport {
      * Método para obtener ingresos totales de un mes de todas las vueltas
      */
     @GetMapping("/getTotalForReport1/{startMonth}/{endMonth}")
-    public ResponseEntity<List<Integer>> getIncomesForLapsOfMonth(@PathVariable Integer startMonth, @PathVariable Integer endMonth){
-        List<Integer> incomes = serviceReport.getIncomesForLapsOfMonth(startMonth, endMonth);
+    public ResponseEntity<List<Integer>> getIncomesForLapsOfMonth(@PathVariable Integer startMonth, @PathVariable Integer endMonth, @RequestParam(required = false) Integer year){
+        List<Integer> incomes = serviceReport.getIncomesForLapsOfMonth(yearOrCurrent(year), startMonth, endMonth);
         return ResponseEntity.ok(incomes);
     }
 
@@ -43,8 +60,8 @@ public class ControlReport {
      * @return Lista de ingresos totales
      */
     @GetMapping("/getBookingsForReport2/{people}/{startMonth}/{endMonth}")
-    public ResponseEntity<List<Integer>> getIncomesForMonthOfNumOfPeople(@PathVariable Integer people, @PathVariable Integer startMonth, @PathVariable Integer endMonth){
-        List<Integer> incomes = serviceReport.getIncomesForMonthOfNumOfPeople(people, startMonth, endMonth);
+    public ResponseEntity<List<Integer>> getIncomesForMonthOfNumOfPeople(@PathVariable Integer people, @PathVariable Integer startMonth, @PathVariable Integer endMonth, @RequestParam(required = false) Integer year){
+        List<Integer> incomes = serviceReport.getIncomesForMonthOfNumOfPeople(people, yearOrCurrent(year), startMonth, endMonth);
         return ResponseEntity.ok(incomes);
     }
 
@@ -52,8 +69,59 @@ public class ControlReport {
      * Método para obtener ingresos totales de un mes de todas las vueltas
      */
     @GetMapping("/getTotalForReport2/{startMonth}/{endMonth}")
-    public ResponseEntity<List<Integer>> getIncomesForNumOfPeopleOfMonth(@PathVariable Integer startMonth, @PathVariable Integer endMonth){
-        List<Integer> incomes = serviceReport.getIncomesForNumOfPeopleOfMonth(startMonth, endMonth);
+    public ResponseEntity<List<Integer>> getIncomesForNumOfPeopleOfMonth(@PathVariable Integer startMonth, @PathVariable Integer endMonth, @RequestParam(required = false) Integer year){
+        List<Integer> incomes = serviceReport.getIncomesForNumOfPeopleOfMonth(yearOrCurrent(year), startMonth, endMonth);
         return ResponseEntity.ok(incomes);
     }
+
+    /**
+     * Método para obtener en una sola petición todos los reportes de un rango de meses.
+     * Las categorías se calculan en paralelo; las que fallan se indican en el campo failures.
+     */
+    @GetMapping("/dashboard/{startMonth}/{endMonth}")
+    public ResponseEntity<DashboardDTO> getDashboard(@PathVariable Integer startMonth, @PathVariable Integer endMonth, @RequestParam(required = false) Integer year){
+        DashboardDTO dashboard = serviceDashboard.getDashboard(yearOrCurrent(year), startMonth, endMonth);
+        return ResponseEntity.ok(dashboard);
+    }
+
+    /**
+     * Método para vaciar la caché de reportes (ms-booking lo llama al confirmar o cancelar reservas)
+     */
+    @PostMapping("/cache/invalidate")
+    public ResponseEntity<Void> invalidateCache() {
+        serviceReportCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Método para descargar, fila por fila, los ingresos de las reservas confirmadas de un rango de fechas
+     * @param from fecha de inicio (incluida)
+     * @param to fecha de fin (excluida)
+     * @param format csv o xlsx
+     * @return archivo generado a medida que se descarga
+     */
+    @GetMapping("/export/revenue")
+    public ResponseEntity<StreamingResponseBody> exportRevenue(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                               @RequestParam(defaultValue = "csv") String format) {
+        boolean xlsx = "xlsx".equalsIgnoreCase(format);
+        if (!xlsx && !"csv".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Formato no válido: " + format);
+        }
+        StreamingResponseBody body = xlsx
+                ? out -> serviceExport.writeXlsx(from, to, out)
+                : out -> serviceExport.writeCsv(from, to, out);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(xlsx
+                ? MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
+                : MediaType.parseMediaType("text/csv; charset=UTF-8"));
+        headers.setContentDispositionFormData("attachment", "Ingresos_" + from + "_" + to + (xlsx ? ".xlsx" : ".csv"));
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    // Sin año explícito se usa el año en curso
+    private Integer yearOrCurrent(Integer year) {
+        return year != null ? year : Year.now().getValue();
+    }
 }
@@ -12,12 +12,13 @@ import java.time.LocalTime;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-public class EntityBookingDTO {
+public class BookingExportRowDTO {
     private Long id;
     private LocalDate bookingDate;
-    private LocalTime bookingTimeEnd;
+    private LocalTime bookingTime;
     private String bookingStatus;
     private Integer lapsOrMaxTimeAllowed;
     private Integer numOfPeople;
-    private String basePrice;
+    private Integer basePrice;
+    private Integer totalAmount;
 }
@@ -0,0 +1,27 @@
+package com.example.ms_reports.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Todos los reportes de un rango de meses. Las categorías que fallaron o no alcanzaron a
+ * calcularse dentro del plazo no aparecen en los mapas y se describen en failures.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardDTO {
+    private Map<Integer, List<Integer>> incomesByLaps = new LinkedHashMap<>(); // Reporte 1 por vueltas o tiempo máximo
+    private List<Integer> totalIncomesByLaps; // Totales del reporte 1
+    private Map<Integer, List<Integer>> incomesByPeople = new LinkedHashMap<>(); // Reporte 2 por tramo de integrantes
+    private List<Integer> totalIncomesByPeople; // Totales del reporte 2
+    private List<String> failures = new ArrayList<>();
+}
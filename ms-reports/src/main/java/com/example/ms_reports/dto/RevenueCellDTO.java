@@ -0,0 +1,18 @@
+package com.example.ms_reports.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueCellDTO {
+    private Integer month;
+    private Integer lapsOrMaxTimeAllowed;
+    private Integer peopleBucket; // Límite superior del tramo de integrantes (2, 5, 10 o 15)
+    private Long revenue;
+    private Long bookings;
+}
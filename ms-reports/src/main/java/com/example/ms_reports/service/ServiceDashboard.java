@@ -0,0 +1,103 @@
+package com.example.ms_reports.service;
+
+import com.example.ms_reports.dto.DashboardDTO;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Arma todos los reportes de un rango de meses calculando cada categoría en paralelo.
+ * Hay un plazo total para el armado; una categoría que falla o no termina a tiempo se informa
+ * en el resultado sin afectar a las demás.
+ */
+@Service
+public class ServiceDashboard {
+
+    private static final int[] LAPS_OR_MAX_TIME = {10, 15, 20};
+    private static final int[] PEOPLE = {2, 5, 10, 15};
+
+    private final ServiceReport serviceReport;
+    private final ExecutorService reportExecutor;
+    private final long deadlineMs;
+
+    public ServiceDashboard(ServiceReport serviceReport,
+                            @Qualifier("reportExecutor") ExecutorService reportExecutor,
+                            @Value("${report.dashboard.deadline-ms:5000}") long deadlineMs) {
+        this.serviceReport = serviceReport;
+        this.reportExecutor = reportExecutor;
+        this.deadlineMs = deadlineMs;
+    }
+
+    /**
+     * Método para obtener todos los reportes de un rango de meses
+     * @param year año
+     * @param startMonth mes de inicio
+     * @param endMonth mes de fin
+     * @return reportes por categoría, totales y categorías que fallaron
+     */
+    public DashboardDTO getDashboard(Integer year, Integer startMonth, Integer endMonth) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        DashboardDTO dashboard = new DashboardDTO();
+
+        Map<String, CompletableFuture<List<Integer>>> futures = new LinkedHashMap<>();
+        Map<String, Consumer<List<Integer>>> targets = new LinkedHashMap<>();
+        for (int laps : LAPS_OR_MAX_TIME) {
+            String name = "vueltas " + laps;
+            futures.put(name, supply(() -> serviceReport.getIncomesForMonthOfLaps(laps, year, startMonth, endMonth)));
+            targets.put(name, incomes -> dashboard.getIncomesByLaps().put(laps, incomes));
+        }
+        futures.put("total vueltas", supply(() -> serviceReport.getIncomesForLapsOfMonth(year, startMonth, endMonth)));
+        targets.put("total vueltas", dashboard::setTotalIncomesByLaps);
+        for (int people : PEOPLE) {
+            String name = "integrantes " + people;
+            futures.put(name, supply(() -> serviceReport.getIncomesForMonthOfNumOfPeople(people, year, startMonth, endMonth)));
+            targets.put(name, incomes -> dashboard.getIncomesByPeople().put(people, incomes));
+        }
+        futures.put("total integrantes", supply(() -> serviceReport.getIncomesForNumOfPeopleOfMonth(year, startMonth, endMonth)));
+        targets.put("total integrantes", dashboard::setTotalIncomesByPeople);
+
+        for (Map.Entry<String, CompletableFuture<List<Integer>>> entry : futures.entrySet()) {
+            String name = entry.getKey();
+            CompletableFuture<List<Integer>> future = entry.getValue();
+            try {
+                targets.get(name).accept(future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                dashboard.getFailures().add(name + ": no terminó dentro del tiempo límite");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                dashboard.getFailures().add(name + ": interrumpido");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+                dashboard.getFailures().add(name + ": " + cause.getMessage());
+            }
+        }
+        if (!dashboard.getFailures().isEmpty()) {
+            System.out.println("Dashboard " + year + " " + startMonth + "-" + endMonth + " fallas: " + dashboard.getFailures());
+        }
+        return dashboard;
+    }
+
+    private CompletableFuture<List<Integer>> supply(Supplier<List<Integer>> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, reportExecutor);
+        } catch (RejectedExecutionException e) {
+            // Pool saturado: la categoría queda como fallida en vez de calcularse en el hilo de la petición
+            return CompletableFuture.failedFuture(new RejectedExecutionException("sin capacidad para calcular el reporte"));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.ms_reports.service;
+
+import com.example.ms_reports.dto.BookingExportRowDTO;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Exportación fila a fila de los ingresos de reservas confirmadas a CSV o XLSX.
+ * Las reservas llegan de ms-booking como JSON por líneas y cada una se escribe apenas se lee,
+ * así la memoria usada no depende de la cantidad de filas exportadas.
+ */
+@Service
+public class ServiceExport {
+
+    private static final String STATUS_CONFIRMADA = "confirmada";
+    private static final String[] COLUMNS = {
+            "ID reserva", "Fecha", "Hora", "Estado", "Vueltas o tiempo máximo",
+            "Integrantes", "Tarifa base", "Ingreso", "Total pagado"
+    };
+    private static final int XLSX_ROWS_IN_MEMORY = 100;
+    private static final int XLSX_MAX_ROWS_PER_SHEET = 1_000_000;
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+
+    public ServiceExport(@Qualifier("exportRestTemplate") RestTemplate restTemplate, ObjectMapper objectMapper) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(BookingExportRowDTO row) throws IOException;
+    }
+
+    /**
+     * Método para exportar los ingresos de un rango de fechas [from, to) en formato CSV
+     * @param from fecha de inicio (incluida)
+     * @param to fecha de fin (excluida)
+     * @param out stream de salida
+     */
+    public void writeCsv(LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\n");
+        streamRows(from, to, row -> {
+            writer.write(String.valueOf(row.getId()));
+            writer.write(",");
+            writer.write(String.valueOf(row.getBookingDate()));
+            writer.write(",");
+            writer.write(String.valueOf(row.getBookingTime()));
+            writer.write(",");
+            writer.write(csv(row.getBookingStatus()));
+            writer.write(",");
+            writer.write(number(row.getLapsOrMaxTimeAllowed()));
+            writer.write(",");
+            writer.write(number(row.getNumOfPeople()));
+            writer.write(",");
+            writer.write(number(row.getBasePrice()));
+            writer.write(",");
+            writer.write(String.valueOf(revenue(row)));
+            writer.write(",");
+            writer.write(number(row.getTotalAmount()));
+            writer.write("\n");
+        });
+        writer.flush();
+    }
+
+    /**
+     * Método para exportar los ingresos de un rango de fechas [from, to) en formato XLSX.
+     * Sólo se mantienen en memoria las últimas filas escritas; el resto se vuelca a disco.
+     * @param from fecha de inicio (incluida)
+     * @param to fecha de fin (excluida)
+     * @param out stream de salida
+     */
+    public void writeXlsx(LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(XLSX_ROWS_IN_MEMORY);
+        workbook.setCompressTempFiles(true);
+        try {
+            SXSSFSheet[] sheet = {newSheet(workbook)};
+            int[] rowIndex = {1};
+            streamRows(from, to, row -> {
+                if (rowIndex[0] > XLSX_MAX_ROWS_PER_SHEET) {
+                    sheet[0] = newSheet(workbook);
+                    rowIndex[0] = 1;
+                }
+                Row dataRow = sheet[0].createRow(rowIndex[0]++);
+                dataRow.createCell(0).setCellValue(row.getId());
+                dataRow.createCell(1).setCellValue(String.valueOf(row.getBookingDate()));
+                dataRow.createCell(2).setCellValue(String.valueOf(row.getBookingTime()));
+                dataRow.createCell(3).setCellValue(row.getBookingStatus() != null ? row.getBookingStatus() : "");
+                setNumber(dataRow, 4, row.getLapsOrMaxTimeAllowed());
+                setNumber(dataRow, 5, row.getNumOfPeople());
+                setNumber(dataRow, 6, row.getBasePrice());
+                dataRow.createCell(7).setCellValue(revenue(row));
+                setNumber(dataRow, 8, row.getTotalAmount());
+            });
+            workbook.write(out);
+            out.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void streamRows(LocalDate from, LocalDate to, RowWriter rowWriter) {
+        String url = "http://ms-booking/booking/export/" + STATUS_CONFIRMADA + "/" + from + "/" + to;
+        restTemplate.execute(url, HttpMethod.GET, null, response -> {
+            try (MappingIterator<BookingExportRowDTO> rows = objectMapper.readerFor(BookingExportRowDTO.class).readValues(response.getBody())) {
+                while (rows.hasNextValue()) {
+                    rowWriter.write(rows.nextValue());
+                }
+            }
+            return null;
+        });
+    }
+
+    private SXSSFSheet newSheet(SXSSFWorkbook workbook) {
+        SXSSFSheet sheet = workbook.createSheet("Ingresos " + (workbook.getNumberOfSheets() + 1));
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            headerRow.createCell(i).setCellValue(COLUMNS[i]);
+        }
+        return sheet;
+    }
+
+    private void setNumber(Row row, int column, Integer value) {
+        if (value != null) {
+            row.createCell(column).setCellValue(value);
+        } else {
+            row.createCell(column);
+        }
+    }
+
+    // Ingreso usado por los reportes: tarifa base por cantidad de integrantes
+    private long revenue(BookingExportRowDTO row) {
+        if (row.getBasePrice() == null || row.getNumOfPeople() == null) {
+            return 0L;
+        }
+        return (long) row.getBasePrice() * row.getNumOfPeople();
+    }
+
+    private String number(Integer value) {
+        return value != null ? value.toString() : "";
+    }
+
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
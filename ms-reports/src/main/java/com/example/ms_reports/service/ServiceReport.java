@@ -1,25 +1,42 @@
 package com.example.ms_reports.service;
 
-import com.example.ms_reports.dto.EntityBookingDTO;
+import com.example.ms_reports.dto.RevenueCellDTO;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 
 @Service
 public class ServiceReport {
 
     private final RestTemplate restTemplate;
+    private final ServiceReportCache serviceReportCache;
+    private final Map<String, CompletableFuture<List<RevenueCellDTO>>> revenueRequests = new ConcurrentHashMap<>();
+    private final long waitTimeoutMs;
 
-    public ServiceReport(RestTemplate restTemplate) {
+    public ServiceReport(RestTemplate restTemplate, ServiceReportCache serviceReportCache,
+                         @Value("${rest.read-timeout-ms:${report.dashboard.deadline-ms:5000}}") long waitTimeoutMs) {
         this.restTemplate = restTemplate;
+        this.serviceReportCache = serviceReportCache;
+        this.waitTimeoutMs = waitTimeoutMs;
     }
 
     private static final String STATUS_CONFIRMADA = "confirmada";
+    private static final int[] LAPS_OR_MAX_TIME = {10, 15, 20};
+    private static final int[] PEOPLE_BUCKETS = {2, 5, 10, 15};
 
     /**
      * Método para obtener una LISTA de ingresos por mes según número de vueltas
@@ -27,75 +44,41 @@ public class ServiceReport {
      * @param lapsOrTimeMax número de vueltas o tiempo máximo
      * @return lista de ingresos por mes
      */
-    public List<Integer> getIncomesForMonthOfLaps(Integer lapsOrTimeMax, Integer startMonth, Integer endMonth) {
+    public List<Integer> getIncomesForMonthOfLaps(Integer lapsOrTimeMax, Integer year, Integer startMonth, Integer endMonth) {
+        return serviceReportCache.get("report1:" + lapsOrTimeMax + ":" + year + ":" + startMonth + ":" + endMonth, () -> computeIncomesForMonthOfLaps(lapsOrTimeMax, year, startMonth, endMonth));
+    }
+
+    private List<Integer> computeIncomesForMonthOfLaps(Integer lapsOrTimeMax, Integer year, Integer startMonth, Integer endMonth) {
+        List<RevenueCellDTO> revenue = getRevenue(year, startMonth, endMonth);
+        int[] incomesPerMonth = sumPerMonth(revenue, startMonth, endMonth, cell -> lapsOrTimeMax.equals(cell.getLapsOrMaxTimeAllowed()));
+
         List<Integer> incomes = new ArrayList<>();
-        Integer totalIncomes = 0;
         incomes.add(lapsOrTimeMax);
-        while (startMonth <= endMonth) {
-            String monthString = String.format("%02d", startMonth);
-            Integer income = getIncomesForTimeAndMonth(lapsOrTimeMax, monthString);
-            totalIncomes += income;
-            incomes.add(income);
-            startMonth++;
-        }
-        incomes.add(totalIncomes);
+        addWithTotal(incomes, incomesPerMonth);
         System.out.println("Incomes for laps: " + incomes);
         return incomes;
     }
 
-    /**
-     * Método para sumar los ingresos totales de UN MES según número de vueltas
-     * @param lapsOrTimeMax número de vueltas o tiempo máximo
-     * @param month mes de la reserva
-     * @return ingresos totales
-     */
-    public Integer getIncomesForTimeAndMonth(Integer lapsOrTimeMax, String month) {
-        List<EntityBookingDTO> bookings = findByStatusAndDayAndLapsOrMaxTime(STATUS_CONFIRMADA, month, lapsOrTimeMax);
-        Integer incomes = 0;
-        for (EntityBookingDTO booking : bookings) {
-            Integer numOfPeople = booking.getNumOfPeople();
-            Integer price = Integer.parseInt(booking.getBasePrice());
-            incomes += (price * numOfPeople);
-        }
-        System.out.println("Incomes for month " + month + " with laps " + lapsOrTimeMax + ": " + incomes);
-        return incomes;
-    }
-
     /**
      * Método para SUMAR los ingresos totales de un mes para el reporte 1
      * @return lista de ingresos totales
      */
-    public List<Integer> getIncomesForLapsOfMonth(Integer startMonth, Integer endMonth){
-        int numMonths = endMonth - startMonth;
+    public List<Integer> getIncomesForLapsOfMonth(Integer year, Integer startMonth, Integer endMonth){
+        return serviceReportCache.get("report1-total:" + year + ":" + startMonth + ":" + endMonth, () -> computeIncomesForLapsOfMonth(year, startMonth, endMonth));
+    }
+
+    private List<Integer> computeIncomesForLapsOfMonth(Integer year, Integer startMonth, Integer endMonth) {
+        List<RevenueCellDTO> revenue = getRevenue(year, startMonth, endMonth);
+        int[] incomesPerMonth = sumPerMonth(revenue, startMonth, endMonth, cell -> contains(LAPS_OR_MAX_TIME, cell.getLapsOrMaxTimeAllowed()));
+
         List<Integer> totalIncomes = new ArrayList<>();
-        for (int i = 1; i <= numMonths; i++){
-            Integer value1 = getIncomesForMonthOfLaps(10, startMonth, endMonth).get(i);
-            Integer value2 = getIncomesForMonthOfLaps(15, startMonth, endMonth).get(i);
-            Integer value3 = getIncomesForMonthOfLaps(20, startMonth, endMonth).get(i);
-            totalIncomes.add(value1 + value2 + value3);
+        for (int income : incomesPerMonth) {
+            totalIncomes.add(income);
         }
-        Integer value1 = getIncomesForMonthOfLaps(10, startMonth, endMonth).get(numMonths + 1);
-        Integer value2 = getIncomesForMonthOfLaps(15, startMonth, endMonth).get(numMonths + 1);
-        Integer value3 = getIncomesForMonthOfLaps(20, startMonth, endMonth).get(numMonths + 1);
-        totalIncomes.add(value1 + value2 + value3);
         System.out.println("Total incomes for laps of month: " + totalIncomes);
         return totalIncomes;
     }
 
-    public List<EntityBookingDTO> findByStatusAndDayAndLapsOrMaxTime(String status, String month, Integer maxTimeAllowed){
-        String url = "http://ms-booking/booking/findByStatusDayTimeAllowed/" + status + "/" + month + "/" + maxTimeAllowed;
-
-        ResponseEntity<List<EntityBookingDTO>> response = restTemplate.exchange(
-                url,
-                HttpMethod.GET,
-                null,
-                new ParameterizedTypeReference<>() {
-                }
-        );
-
-        return response.getBody();
-    }
-
     // ------------------------- REPORTE 2 -----------------------------------------
 
     /**
@@ -106,79 +89,102 @@ public class ServiceReport {
      * @param endMonth mes de fin
      * @return lista de ingresos por mes
      */
-    public List<Integer> getIncomesForMonthOfNumOfPeople(Integer people, Integer startMonth, Integer endMonth) {
-        List<Integer> incomes = new ArrayList<>();
-        Integer totalIncomes = 0;
+    public List<Integer> getIncomesForMonthOfNumOfPeople(Integer people, Integer year, Integer startMonth, Integer endMonth) {
+        return serviceReportCache.get("report2:" + people + ":" + year + ":" + startMonth + ":" + endMonth, () -> computeIncomesForMonthOfNumOfPeople(people, year, startMonth, endMonth));
+    }
 
-        while (startMonth <= endMonth) {
-            String monthString = String.format("%02d", startMonth);
-            Integer income = getIncomesForNumOfPeople(people, monthString);
-            totalIncomes += income;
-            incomes.add(income);
-            startMonth++;
-        }
-        incomes.add(totalIncomes);
+    private List<Integer> computeIncomesForMonthOfNumOfPeople(Integer people, Integer year, Integer startMonth, Integer endMonth) {
+        int bucket = peopleBucket(people);
+        List<RevenueCellDTO> revenue = getRevenue(year, startMonth, endMonth);
+        int[] incomesPerMonth = sumPerMonth(revenue, startMonth, endMonth, cell -> Integer.valueOf(bucket).equals(cell.getPeopleBucket()));
+
+        List<Integer> incomes = new ArrayList<>();
+        addWithTotal(incomes, incomesPerMonth);
         System.out.println("Incomes for num of people " + people + ": " + incomes);
         return incomes;
     }
 
     /**
-     * Método para sumar los ingresos totales de UN MES según cantidad de personas
-     * 1-2 personas: enero = $valor
+     * Método para SUMAR los ingresos totales de un mes para el reporte 2
+     * @return lista de ingresos totales
+     */
+    public List<Integer> getIncomesForNumOfPeopleOfMonth(Integer year, Integer startMonth, Integer endMonth) {
+        return serviceReportCache.get("report2-total:" + year + ":" + startMonth + ":" + endMonth, () -> computeIncomesForNumOfPeopleOfMonth(year, startMonth, endMonth));
+    }
+
+    private List<Integer> computeIncomesForNumOfPeopleOfMonth(Integer year, Integer startMonth, Integer endMonth) {
+        List<RevenueCellDTO> revenue = getRevenue(year, startMonth, endMonth);
+        int[] incomesPerMonth = sumPerMonth(revenue, startMonth, endMonth, cell -> contains(PEOPLE_BUCKETS, cell.getPeopleBucket()));
+
+        List<Integer> totalIncomes = new ArrayList<>();
+        addWithTotal(totalIncomes, incomesPerMonth);
+        System.out.println("Total incomes for num of people of month: " + totalIncomes);
+        return totalIncomes;
+    }
+
+    /**
+     * Método para obtener el tramo de integrantes (identificado por su límite superior)
      * @param people número de personas
-     * @param month mes de la reserva
-     * @return ingresos totales
+     * @return tramo: 2, 5, 10 o 15
      */
-    public Integer getIncomesForNumOfPeople(Integer people, String month) {
-        List<EntityBookingDTO> bookings;
-        if (people == 1 || people == 2) {
-            bookings = findByStatusAndDayAndNumOfPeople1or2(STATUS_CONFIRMADA, month, people);
+    private int peopleBucket(Integer people) {
+        if (people >= 1 && people <= 2) {
+            return 2;
         } else if (people >= 3 && people <= 5) {
-            bookings = findByStatusAndDayAndNumOfPeople3to5(STATUS_CONFIRMADA, month, people);
+            return 5;
         } else if (people >= 6 && people <= 10) {
-            bookings = findByStatusAndDayAndNumOfPeople6to10(STATUS_CONFIRMADA, month, people);
+            return 10;
         } else if (people >= 11 && people <= 15) {
-            bookings = findByStatusAndDayAndNumOfPeople11to15(STATUS_CONFIRMADA, month, people);
-        } else {
-            throw new IllegalArgumentException("Número de personas no válido");
-        }
-        Integer incomes = 0;
-        for (EntityBookingDTO booking : bookings) {
-            Integer numOfPeople = booking.getNumOfPeople();
-            Integer price = Integer.parseInt(booking.getBasePrice());
-            incomes += (price * numOfPeople);
+            return 15;
         }
-        System.out.println("Incomes for month " + month + " with num of people " + people + ": " + incomes);
-        return incomes;
+        throw new IllegalArgumentException("Número de personas no válido");
     }
 
+    // ------------------------- INGRESOS AGRUPADOS -----------------------------------------
+
     /**
-     * Método para SUMAR los ingresos totales de un mes para el reporte 2
-     * @return lista de ingresos totales
+     * Método para obtener en una sola llamada los ingresos confirmados del rango de meses de un año,
+     * agrupados por mes, vueltas o tiempo máximo y tramo de integrantes.
+     * Si otro hilo ya está consultando el mismo rango se espera su respuesta en vez de repetir la llamada,
+     * como mucho el timeout de lectura.
+     * @param year año
+     * @param startMonth mes de inicio
+     * @param endMonth mes de fin
+     * @return ingresos agrupados
      */
-    public List<Integer> getIncomesForNumOfPeopleOfMonth(Integer startMonth, Integer endMonth){
-        int numMonths = endMonth - startMonth;
-        List<Integer> totalIncomes = new ArrayList<>();
-        for (int i = 0; i <= numMonths; i++){
-            Integer value1 = getIncomesForMonthOfNumOfPeople(2, startMonth, endMonth).get(i);
-            Integer value2 = getIncomesForMonthOfNumOfPeople(5, startMonth, endMonth).get(i);
-            Integer value3 = getIncomesForMonthOfNumOfPeople(10, startMonth, endMonth).get(i);
-            Integer value4 = getIncomesForMonthOfNumOfPeople(15, startMonth, endMonth).get(i);
-            totalIncomes.add(value1 + value2 + value3 + value4);
+    public List<RevenueCellDTO> getRevenue(Integer year, Integer startMonth, Integer endMonth) {
+        String key = year + ":" + startMonth + ":" + endMonth;
+        CompletableFuture<List<RevenueCellDTO>> request = new CompletableFuture<>();
+        CompletableFuture<List<RevenueCellDTO>> inFlight = revenueRequests.putIfAbsent(key, request);
+        if (inFlight != null) {
+            // Se espera a lo más lo mismo que la llamada del otro hilo, y se falla como fallaría ella
+            try {
+                return inFlight.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : new IllegalStateException(e.getCause());
+            } catch (TimeoutException e) {
+                throw new ResourceAccessException("ms-booking no respondió los ingresos de " + key + " dentro de " + waitTimeoutMs + " ms");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResourceAccessException("Espera de los ingresos de " + key + " interrumpida");
+            }
+        }
+        try {
+            List<RevenueCellDTO> revenue = fetchRevenue(year, startMonth, endMonth);
+            request.complete(revenue);
+            return revenue;
+        } catch (RuntimeException e) {
+            request.completeExceptionally(e);
+            throw e;
+        } finally {
+            revenueRequests.remove(key, request);
         }
-        Integer value1 = getIncomesForMonthOfNumOfPeople(2, startMonth, endMonth).get(numMonths + 1);
-        Integer value2 = getIncomesForMonthOfNumOfPeople(5, startMonth, endMonth).get(numMonths + 1);
-        Integer value3 = getIncomesForMonthOfNumOfPeople(10, startMonth, endMonth).get(numMonths + 1);
-        Integer value4 = getIncomesForMonthOfNumOfPeople(15, startMonth, endMonth).get(numMonths + 1);
-        totalIncomes.add(value1 + value2 + value3 + value4);
-        System.out.println("Total incomes for num of people of month: " + totalIncomes);
-        return totalIncomes;
     }
 
-    public List<EntityBookingDTO> findByStatusAndDayAndNumOfPeople1or2(String status, String month, Integer numOfPeople){
-        String url = "http://ms-booking/booking/findByStatusDayPeople1/" + status + "/" + month + "/" + numOfPeople;
+    private List<RevenueCellDTO> fetchRevenue(Integer year, Integer startMonth, Integer endMonth) {
+        String url = "http://ms-booking/booking/revenue/" + STATUS_CONFIRMADA + "/" + year + "/" + startMonth + "/" + endMonth;
 
-        ResponseEntity<List<EntityBookingDTO>> response = restTemplate.exchange(
+        ResponseEntity<List<RevenueCellDTO>> response = restTemplate.exchange(
                 url,
                 HttpMethod.GET,
                 null,
@@ -186,48 +192,38 @@ public class ServiceReport {
                 }
         );
 
-        return response.getBody();
+        return response.getBody() != null ? response.getBody() : List.of();
     }
 
-    public List<EntityBookingDTO> findByStatusAndDayAndNumOfPeople3to5(String status, String month, Integer numOfPeople){
-        String url = "http://ms-booking/booking/findByStatusDayPeople2/" + status + "/" + month + "/" + numOfPeople;
-
-        ResponseEntity<List<EntityBookingDTO>> response = restTemplate.exchange(
-                url,
-                HttpMethod.GET,
-                null,
-                new ParameterizedTypeReference<>() {
-                }
-        );
-
-        return response.getBody();
+    private int[] sumPerMonth(List<RevenueCellDTO> revenue, Integer startMonth, Integer endMonth, Predicate<RevenueCellDTO> filter) {
+        int[] incomes = new int[Math.max(endMonth - startMonth + 1, 0)];
+        for (RevenueCellDTO cell : revenue) {
+            int index = cell.getMonth() - startMonth;
+            if (index >= 0 && index < incomes.length && cell.getRevenue() != null && filter.test(cell)) {
+                incomes[index] += Math.toIntExact(cell.getRevenue());
+            }
+        }
+        return incomes;
     }
 
-    public List<EntityBookingDTO> findByStatusAndDayAndNumOfPeople6to10(String status, String month, Integer numOfPeople){
-        String url = "http://ms-booking/booking/findByStatusDayPeople3/" + status + "/" + month + "/" + numOfPeople;
-
-        ResponseEntity<List<EntityBookingDTO>> response = restTemplate.exchange(
-                url,
-                HttpMethod.GET,
-                null,
-                new ParameterizedTypeReference<>() {
-                }
-        );
-
-        return response.getBody();
+    private void addWithTotal(List<Integer> incomes, int[] incomesPerMonth) {
+        int total = 0;
+        for (int income : incomesPerMonth) {
+            incomes.add(income);
+            total += income;
+        }
+        incomes.add(total);
     }
 
-    public List<EntityBookingDTO> findByStatusAndDayAndNumOfPeople11to15(String status, String month, Integer numOfPeople){
-        String url = "http://ms-booking/booking/findByStatusDayPeople4/" + status + "/" + month + "/" + numOfPeople;
-
-        ResponseEntity<List<EntityBookingDTO>> response = restTemplate.exchange(
-                url,
-                HttpMethod.GET,
-                null,
-                new ParameterizedTypeReference<>() {
-                }
-        );
-
-        return response.getBody();
+    private boolean contains(int[] values, Integer value) {
+        if (value == null) {
+            return false;
+        }
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,89 @@
+package com.example.ms_reports.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caché de resultados de reportes indexada por tipo de reporte y rango de meses.
+ * ms-booking avisa cuando se confirma o cancela una reserva y se vacía la caché; si el aviso no
+ * llega, las entradas vencen por TTL. Un resultado calculado antes de un aviso no se guarda.
+ */
+@Service
+public class ServiceReportCache {
+
+    private final long ttlNanos;
+    private final Map<String, CachedReport> cache;
+    private long generation;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    public ServiceReportCache(MeterRegistry meterRegistry,
+                              @Value("${report.cache.ttl-ms:300000}") long ttlMs,
+                              @Value("${report.cache.max-entries:500}") int maxEntries) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedReport> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = Counter.builder("report.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("report.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.invalidations = Counter.builder("report.cache.invalidations").register(meterRegistry);
+        Gauge.builder("report.cache.size", this, ServiceReportCache::size).register(meterRegistry);
+    }
+
+    private record CachedReport(List<Integer> report, long loadedAt) {
+    }
+
+    /**
+     * Método para obtener un reporte desde la caché o calcularlo si no está o ya venció
+     * @param key tipo de reporte y parámetros
+     * @param loader cálculo del reporte
+     * @return reporte
+     */
+    public List<Integer> get(String key, Supplier<List<Integer>> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            CachedReport cached = cache.get(key);
+            if (cached != null && System.nanoTime() - cached.loadedAt() <= ttlNanos) {
+                hits.increment();
+                return cached.report();
+            }
+            loadGeneration = generation;
+        }
+
+        misses.increment();
+        List<Integer> report = List.copyOf(loader.get());
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                cache.put(key, new CachedReport(report, System.nanoTime()));
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Método para vaciar la caché (se llama cuando cambian las reservas confirmadas)
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        cache.clear();
+        invalidations.increment();
+    }
+
+    private synchronized int size() {
+        return cache.size();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.ms_special_rates.controller;
 
+import com.example.ms_special_rates.dto.DiscountBatchRequest;
 import com.example.ms_special_rates.service.ServiceSpecialRates;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -20,4 +22,23 @@ public class ControlSpecialRates {
                                    @PathVariable int basePrice) {
         return serviceSpecialRates.discountForBirthday(clientBirthday, bookingDayMonth, basePrice);
     }
+
+    /**
+     * Método para obtener en una sola llamada los descuentos por cumpleaños de varios clientes
+     * @param request precio base, fecha de la reserva (día y mes) y lista de fechas de cumpleaños
+     * @return precios con descuento, en el mismo orden de la entrada; 400 si falta algún dato
+     */
+    @PostMapping("/discount/batch")
+    public ResponseEntity<int[]> discountForBirthday(@RequestBody DiscountBatchRequest request) {
+        if (request.getBasePrice() == null || request.getBookingDayMonth() == null || request.getClientBirthdays() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Un cliente sin cumpleaños no tiene descuento, pero una fecha debe traer al menos día y mes
+        for (String clientBirthday : request.getClientBirthdays()) {
+            if (clientBirthday != null && clientBirthday.length() < 5) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok(serviceSpecialRates.discountForBirthday(request.getClientBirthdays(), request.getBookingDayMonth(), request.getBasePrice()));
+    }
 }
@@ -0,0 +1,18 @@
+package com.example.ms_special_rates.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiscountBatchRequest {
+    private Integer basePrice;
+    private String bookingDayMonth;
+    private List<String> clientBirthdays;
+}
@@ -2,6 +2,8 @@ package com.example.ms_special_rates.service;
 
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 public class ServiceSpecialRates {
 
@@ -19,4 +21,18 @@ public class ServiceSpecialRates {
         return basePrice - ((basePrice * discount) / 100);
     }
 
+    /**
+     * Método para calcular el descuento por cumpleaños para varios clientes a la vez
+     * @param clientBirthdays lista de fechas de cumpleaños de los clientes
+     * @param bookingDayMonth fecha de la reserva (día y mes)
+     * @return precios con descuento, en el mismo orden de la entrada
+     */
+    public int[] discountForBirthday(List<String> clientBirthdays, String bookingDayMonth, int basePrice) {
+        int[] prices = new int[clientBirthdays.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = discountForBirthday(clientBirthdays.get(i), bookingDayMonth, basePrice);
+        }
+        return prices;
+    }
+
 }